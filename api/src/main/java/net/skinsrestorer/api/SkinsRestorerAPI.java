@@ -20,6 +20,10 @@
 package net.skinsrestorer.api;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
 import lombok.NonNull;
 import net.skinsrestorer.api.exception.NotPremiumException;
 import net.skinsrestorer.api.exception.SkinRequestException;
@@ -28,7 +32,13 @@ import net.skinsrestorer.api.model.MojangProfileResponse;
 import net.skinsrestorer.api.property.IProperty;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * API Example: <a href="https://github.com/SkinsRestorer/SkinsRestorerAPIExample">https://github.com/SkinsRestorer/SkinsRestorerAPIExample</a> <br>
@@ -37,12 +47,22 @@ import java.util.Base64;
  */
 @SuppressWarnings({"unused"})
 public abstract class SkinsRestorerAPI {
+    private static final int PROFILE_DATA_CACHE_SIZE = 500;
     private static SkinsRestorerAPI api;
     private final IMojangAPI mojangAPI;
     private final IMineSkinAPI mineSkinAPI;
     private final ISkinStorage skinStorage;
     private final IPropertyFactory propertyFactory;
-    private final Gson gson = new Gson();
+    private final TypeAdapter<MojangProfileResponse> profileDataAdapter = new Gson().getAdapter(MojangProfileResponse.class);
+    private final TypeAdapter<JsonElement> jsonTreeAdapter = new Gson().getAdapter(JsonElement.class);
+    // Parsed profile data by property value, the same skins are decoded over and over by the GUI and skull plugins.
+    // Only the json tree is cached, every caller gets its own object to modify.
+    private final Map<String, JsonElement> profileDataCache = new LinkedHashMap<String, JsonElement>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, JsonElement> eldest) {
+            return size() > PROFILE_DATA_CACHE_SIZE;
+        }
+    };
     private final IWrapperFactory wrapperFactory;
 
     protected SkinsRestorerAPI(IMojangAPI mojangAPI, IMineSkinAPI mineSkinAPI, ISkinStorage skinStorage, IWrapperFactory wrapperFactory, IPropertyFactory propertyFactory) {
@@ -242,9 +262,30 @@ public abstract class SkinsRestorerAPI {
      * @return Decoded profile data as java object
      */
     public MojangProfileResponse getSkinProfileData(@NonNull IProperty property) {
-        String decodedString = new String(Base64.getDecoder().decode(property.getValue()));
+        String value = property.getValue();
+
+        JsonElement tree;
+        synchronized (profileDataCache) {
+            tree = profileDataCache.get(value);
+        }
+
+        if (tree == null) {
+            try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(Base64.getDecoder().decode(value)), StandardCharsets.UTF_8))) {
+                reader.setLenient(true);
+                tree = jsonTreeAdapter.read(reader);
+            } catch (IOException | IllegalStateException e) {
+                throw new JsonSyntaxException(e);
+            }
+
+            if (tree == null || tree.isJsonNull())
+                return null;
+
+            synchronized (profileDataCache) {
+                profileDataCache.put(value, tree);
+            }
+        }
 
-        return gson.fromJson(decodedString, MojangProfileResponse.class);
+        return profileDataAdapter.fromJsonTree(tree);
     }
 
     public void setSkin(String playerName, String skinName) throws SkinRequestException {
@@ -26,7 +26,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import net.skinsrestorer.shared.SkinsRestorerAPIShared;
 import net.skinsrestorer.shared.interfaces.ISRForeign;
+import net.skinsrestorer.shared.interfaces.ISRPlayer;
 import net.skinsrestorer.shared.storage.Message;
+import net.skinsrestorer.shared.storage.TimedCache;
 import net.skinsrestorer.shared.utils.C;
 import net.skinsrestorer.shared.utils.log.SRLogger;
 import org.bukkit.Bukkit;
@@ -38,17 +40,22 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
 
-import java.nio.CharBuffer;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static net.skinsrestorer.bukkit.utils.WrapperBukkit.wrapPlayer;
 
 @RequiredArgsConstructor
 public class SkinsGUI implements InventoryHolder {
     private static final int HEAD_COUNT_PER_PAGE = 36;
+    private static final TimedCache<String, ItemStack[]> PAGE_CACHE = new TimedCache<>(200, 10, TimeUnit.MINUTES);
+    private static final TimedCache<String, ItemStack> SKULL_CACHE = new TimedCache<>(HEAD_COUNT_PER_PAGE * 50, 10, TimeUnit.MINUTES);
+    private static final TimedCache<String, ItemStack> GLASS_CACHE = new TimedCache<>(100, 10, TimeUnit.MINUTES);
+    // Skin name -> keys of the cached pages showing it, only for pages of the current skin list version
+    private static final Map<String, Set<String>> PAGE_KEYS_BY_SKIN = new ConcurrentHashMap<>();
+    private static final AtomicLong PAGE_KEYS_VERSION = new AtomicLong(-1);
     private final SkinsRestorerBukkit plugin;
     private final int page; // Page number start with 0
     @Getter
@@ -56,14 +63,75 @@ public class SkinsGUI implements InventoryHolder {
     private Inventory inventory;
 
     public static Inventory createGUI(SkinsRestorerBukkit plugin, ISRForeign player, int page, Map<String, String> skinsList) {
+        return createInventory(plugin, player, page, createContents(plugin, player, page, skinsList));
+    }
+
+    public static Inventory createGUI(SkinsRestorerBukkit plugin, ISRForeign player, int page) {
+        if (page > 999)
+            page = 999;
+        int skinNumber = HEAD_COUNT_PER_PAGE * page;
+
+        // The skin list version changes whenever skins are added or removed, so outdated pages are never served
+        long version = plugin.getSkinStorage().getSkinListVersion();
+        String pageKey = player.getLocale() + ":" + page + ":" + version;
+        Optional<ItemStack[]> cached = PAGE_CACHE.get(pageKey);
+        if (cached.isPresent())
+            return createInventory(plugin, player, page, cached.get());
+
+        Map<String, String> skinsList = plugin.getSkinStorage().getSkins(skinNumber);
+        ItemStack[] contents = createContents(plugin, player, page, skinsList);
+        PAGE_CACHE.put(pageKey, contents);
+
+        // Pages of older versions can't be requested anymore, so their keys don't need to be tracked
+        if (PAGE_KEYS_VERSION.getAndSet(version) != version)
+            PAGE_KEYS_BY_SKIN.clear();
+        for (String skinName : skinsList.keySet()) {
+            PAGE_KEYS_BY_SKIN.computeIfAbsent(skinName, k -> ConcurrentHashMap.newKeySet()).add(pageKey);
+        }
+
+        return createInventory(plugin, player, page, contents);
+    }
+
+    /**
+     * Drops the cached pages showing the given skin after its value changed.
+     * Cached skulls are keyed by the skin value, so the new head is created on the next page build.
+     *
+     * @param skinName lowercase skin name
+     */
+    public static void invalidateSkin(String skinName) {
+        Set<String> pageKeys = PAGE_KEYS_BY_SKIN.remove(skinName);
+        if (pageKeys != null)
+            pageKeys.forEach(PAGE_CACHE::invalidate);
+    }
+
+    public static void clearCache() {
+        PAGE_CACHE.invalidateAll();
+        PAGE_KEYS_BY_SKIN.clear();
+        SKULL_CACHE.invalidateAll();
+        GLASS_CACHE.invalidateAll();
+    }
+
+    private static Inventory createInventory(SkinsRestorerBukkit plugin, ISRForeign player, int page, ItemStack[] contents) {
         SkinsGUI instance = new SkinsGUI(plugin, page);
         Inventory inventory = Bukkit.createInventory(instance, 54, SkinsRestorerAPIShared.getApi().getMessage(player, Message.SKINSMENU_TITLE_NEW, String.valueOf(page + 1)));
         instance.setInventory(inventory);
 
-        ItemStack none = createGlass(GlassType.NONE, player);
-        ItemStack delete = createGlass(GlassType.DELETE, player);
-        ItemStack prev = createGlass(GlassType.PREV, player);
-        ItemStack next = createGlass(GlassType.NEXT, player);
+        ItemStack[] copy = new ItemStack[contents.length];
+        for (int i = 0; i < contents.length; i++) {
+            copy[i] = contents[i] == null ? null : contents[i].clone();
+        }
+        inventory.setContents(copy);
+
+        return inventory;
+    }
+
+    private static ItemStack[] createContents(SkinsRestorerBukkit plugin, ISRForeign player, int page, Map<String, String> skinsList) {
+        ItemStack[] contents = new ItemStack[54];
+
+        ItemStack none = getGlass(GlassType.NONE, player);
+        ItemStack delete = getGlass(GlassType.DELETE, player);
+        ItemStack prev = getGlass(GlassType.PREV, player);
+        ItemStack next = getGlass(GlassType.NEXT, player);
 
         int skinCount = 0;
         for (Map.Entry<String, String> entry : skinsList.entrySet()) {
@@ -72,65 +140,64 @@ public class SkinsGUI implements InventoryHolder {
                 break;
             }
 
-            if (CharBuffer.wrap(entry.getKey().toCharArray()).chars().anyMatch(i -> Character.isLetter(i) && Character.isUpperCase(i))) {
+            if (!entry.getKey().equals(entry.getKey().toLowerCase(Locale.ROOT))) {
                 plugin.getLogger().info("ERROR: skin " + entry.getKey() + ".skin contains a Upper case!");
                 plugin.getLogger().info("Please rename the file name to a lower case!.");
                 continue;
             }
 
-            inventory.addItem(createSkull(plugin.getLogger(), player, entry.getKey(), entry.getValue()));
+            contents[skinCount] = getSkull(plugin.getLogger(), player, entry.getKey(), entry.getValue());
             skinCount++;
         }
 
         // White Glass line
-        inventory.setItem(36, none);
-        inventory.setItem(37, none);
-        inventory.setItem(38, none);
-        inventory.setItem(39, none);
-        inventory.setItem(40, none);
-        inventory.setItem(41, none);
-        inventory.setItem(42, none);
-        inventory.setItem(43, none);
-        inventory.setItem(44, none);
+        for (int slot = 36; slot <= 44; slot++) {
+            contents[slot] = none;
+        }
 
         // If page is above starting page (0), add previous button
-        if (page > 0) {
-            inventory.setItem(45, prev);
-            inventory.setItem(46, prev);
-            inventory.setItem(47, prev);
-        } else {
-            // Empty place previous
-            inventory.setItem(45, none);
-            inventory.setItem(46, none);
-            inventory.setItem(47, none);
-        }
+        ItemStack prevButton = page > 0 ? prev : none; // Empty place previous
+        contents[45] = prevButton;
+        contents[46] = prevButton;
+        contents[47] = prevButton;
 
         // Middle button //remove skin
-        inventory.setItem(48, delete);
-        inventory.setItem(49, delete);
-        inventory.setItem(50, delete);
+        contents[48] = delete;
+        contents[49] = delete;
+        contents[50] = delete;
 
         // If the page is full, adding Next Page button.
-        if (page < 999 && inventory.firstEmpty() > 50) {
-            inventory.setItem(51, next);
-            inventory.setItem(52, next);
-            inventory.setItem(53, next);
-        } else {
-            // Empty place next
-            inventory.setItem(51, none);
-            inventory.setItem(52, none);
-            inventory.setItem(53, none);
-        }
+        ItemStack nextButton = page < 999 && skinCount >= HEAD_COUNT_PER_PAGE ? next : none; // Empty place next
+        contents[51] = nextButton;
+        contents[52] = nextButton;
+        contents[53] = nextButton;
 
-        return inventory;
+        return contents;
     }
 
-    public static Inventory createGUI(SkinsRestorerBukkit plugin, ISRForeign player, int page) {
-        if (page > 999)
-            page = 999;
-        int skinNumber = HEAD_COUNT_PER_PAGE * page;
+    private static ItemStack getSkull(SRLogger log, ISRForeign player, String name, String property) {
+        // Applying the skin decodes the whole texture property, so ready-made heads are reused across pages and players
+        String skullKey = player.getLocale() + ":" + name + ":" + property;
+        Optional<ItemStack> cached = SKULL_CACHE.get(skullKey);
+        if (cached.isPresent())
+            return cached.get();
+
+        ItemStack skull = createSkull(log, player, name, property);
+        SKULL_CACHE.put(skullKey, skull);
+
+        return skull;
+    }
+
+    private static ItemStack getGlass(GlassType type, ISRForeign player) {
+        String glassKey = player.getLocale() + ":" + type.name();
+        Optional<ItemStack> cached = GLASS_CACHE.get(glassKey);
+        if (cached.isPresent())
+            return cached.get();
+
+        ItemStack glass = createGlass(type, player);
+        GLASS_CACHE.put(glassKey, glass);
 
-        return createGUI(plugin, player, page, plugin.getSkinStorage().getSkins(skinNumber));
+        return glass;
     }
 
     private static ItemStack createSkull(SRLogger log, ISRForeign player, String name, String property) {
@@ -199,27 +266,28 @@ public class SkinsGUI implements InventoryHolder {
 
         ItemMeta itemMeta = currentItem.getItemMeta();
         assert itemMeta != null;
+        ISRPlayer srPlayer = wrapPlayer(player);
 
         if (plugin.isProxyMode()) {
             switch (XMaterial.matchXMaterial(currentItem)) {
                 case PLAYER_HEAD:
-                    plugin.runAsync(() -> {
+                    plugin.runAsync(srPlayer, () -> {
                         String skin = itemMeta.getDisplayName();
                         plugin.requestSkinSetFromProxy(player, skin);
                     });
                     player.closeInventory();
                     break;
                 case RED_STAINED_GLASS_PANE:
-                    plugin.runAsync(() ->
+                    plugin.runAsync(srPlayer, () ->
                             plugin.requestSkinClearFromProxy(player));
                     player.closeInventory();
                     break;
                 case GREEN_STAINED_GLASS_PANE:
-                    plugin.runAsync(() ->
+                    plugin.runAsync(srPlayer, () ->
                             plugin.requestSkinsFromProxy(player, page + 1));
                     break;
                 case YELLOW_STAINED_GLASS_PANE:
-                    plugin.runAsync(() ->
+                    plugin.runAsync(srPlayer, () ->
                             plugin.requestSkinsFromProxy(player, page - 1));
                     break;
                 default:
@@ -228,7 +296,7 @@ public class SkinsGUI implements InventoryHolder {
         } else {
             switch (XMaterial.matchXMaterial(currentItem)) {
                 case PLAYER_HEAD:
-                    plugin.runAsync(() -> {
+                    plugin.runAsync(srPlayer, () -> {
                         final String skinName = itemMeta.getDisplayName();
                         plugin.getSkinCommand().onSkinSetShort(player, skinName);
                     });
@@ -239,16 +307,16 @@ public class SkinsGUI implements InventoryHolder {
                     player.closeInventory();
                     break;
                 case GREEN_STAINED_GLASS_PANE:
-                    plugin.runAsync(() -> {
-                        Inventory newInventory = createGUI(plugin, wrapPlayer(player), page + 1);
+                    plugin.runAsync(srPlayer, () -> {
+                        Inventory newInventory = createGUI(plugin, srPlayer, page + 1);
 
                         plugin.runSync(() ->
                                 player.openInventory(newInventory));
                     });
                     break;
                 case YELLOW_STAINED_GLASS_PANE:
-                    plugin.runAsync(() -> {
-                        Inventory newInventory = createGUI(plugin, wrapPlayer(player), page - 1);
+                    plugin.runAsync(srPlayer, () -> {
+                        Inventory newInventory = createGUI(plugin, srPlayer, page - 1);
 
                         plugin.runSync(() ->
                                 player.openInventory(newInventory));
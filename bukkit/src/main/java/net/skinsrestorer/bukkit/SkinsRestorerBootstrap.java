@@ -22,10 +22,11 @@ package net.skinsrestorer.bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public class SkinsRestorerBootstrap extends JavaPlugin {
+    private SkinsRestorerBukkit skinsRestorerBukkit;
+
     @Override
     public void onEnable() {
         Exception startupError = null;
-        SkinsRestorerBukkit skinsRestorerBukkit = null;
         try {
             skinsRestorerBukkit = new SkinsRestorerBukkit(this);
             skinsRestorerBukkit.pluginStartup();
@@ -46,4 +47,10 @@ public class SkinsRestorerBootstrap extends JavaPlugin {
             }
         }
     }
+
+    @Override
+    public void onDisable() {
+        if (skinsRestorerBukkit != null)
+            skinsRestorerBukkit.pluginShutdown();
+    }
 }
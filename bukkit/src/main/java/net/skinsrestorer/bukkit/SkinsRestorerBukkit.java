@@ -46,7 +46,10 @@ import net.skinsrestorer.shared.reflection.ReflectionUtil;
 import net.skinsrestorer.shared.storage.Config;
 import net.skinsrestorer.shared.storage.Message;
 import net.skinsrestorer.shared.storage.YamlConfig;
+import net.skinsrestorer.shared.utils.PluginMessageCodec;
+import net.skinsrestorer.shared.utils.SRExecutors;
 import net.skinsrestorer.shared.utils.SharedMethods;
+import net.skinsrestorer.shared.utils.SkinPageAssembler;
 import net.skinsrestorer.shared.utils.log.JavaLoggerImpl;
 import net.skinsrestorer.spigot.SpigotUtil;
 import net.skinsrestorer.v1_7.BukkitLegacyProperty;
@@ -68,6 +71,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
@@ -81,6 +85,7 @@ public class SkinsRestorerBukkit extends SkinsRestorerServerShared {
     private final JavaPlugin pluginInstance; // Only for platform API use
     private final SkinCommand skinCommand = new SkinCommand(this);
     private final UpdateDownloaderGithub updateDownloader = new UpdateDownloaderGithub(this);
+    private final SkinPageAssembler skinPageAssembler = new SkinPageAssembler();
     private boolean isUpdaterInitialized = false;
     private SkinApplierBukkit skinApplierBukkit;
     private boolean updateDownloaded = false;
@@ -160,6 +165,7 @@ public class SkinsRestorerBukkit extends SkinsRestorerServerShared {
 
         // Init SkinsGUI click listener even when in ProxyMode
         Bukkit.getPluginManager().registerEvents(new InventoryListener(), pluginInstance);
+        skinStorage.addSkinChangeListener(SkinsGUI::invalidateSkin);
 
         if (proxyMode) {
             if (Files.exists(dataFolder.resolve("enableSkinStorageAPI.txt"))) {
@@ -205,19 +211,43 @@ public class SkinsRestorerBukkit extends SkinsRestorerServerShared {
                                 return;
 
                             requestSkinsFromProxy(player, 0);
-                        } else if (subChannel.equalsIgnoreCase("returnSkins") || subChannel.equalsIgnoreCase("returnSkinsV2")) {
+                        } else if (subChannel.equalsIgnoreCase("returnSkinsV4")) {
+                            String playerName = in.readUTF();
+                            int page = in.readInt();
+                            int sequenceId = in.readInt();
+                            int frameIndex = in.readUnsignedShort();
+                            boolean last = in.readBoolean();
+
+                            byte[] msgBytes = new byte[in.readInt()];
+                            in.readFully(msgBytes);
+
+                            Optional<Map<String, String>> skinList = skinPageAssembler.accept(playerName, sequenceId, frameIndex, last, convertToObjectV3(msgBytes));
+                            if (!skinList.isPresent())
+                                return;
+
+                            Player player = Bukkit.getPlayer(playerName);
+                            if (player == null)
+                                return;
+
+                            Inventory inventory = SkinsGUI.createGUI(this, wrapPlayer(player), page, skinList.get());
+
+                            runSync(() -> player.openInventory(inventory));
+                        } else if (subChannel.equalsIgnoreCase("returnSkins") || subChannel.equalsIgnoreCase("returnSkinsV2") || subChannel.equalsIgnoreCase("returnSkinsV3")) {
                             Player player = Bukkit.getPlayer(in.readUTF());
                             if (player == null)
                                 return;
 
                             int page = in.readInt();
 
-                            short len = in.readShort();
+                            boolean v3 = subChannel.equalsIgnoreCase("returnSkinsV3");
+                            int len = v3 ? in.readInt() : in.readShort();
                             byte[] msgBytes = new byte[len];
                             in.readFully(msgBytes);
 
                             Map<String, String> skinList;
-                            if (subChannel.equalsIgnoreCase("returnSkinsV2")) {
+                            if (v3) {
+                                skinList = convertToObjectV3(msgBytes);
+                            } else if (subChannel.equalsIgnoreCase("returnSkinsV2")) {
                                 skinList = convertToObjectV2(msgBytes);
                             } else { // LEGACY
                                 skinList = new TreeMap<>();
@@ -256,7 +286,7 @@ public class SkinsRestorerBukkit extends SkinsRestorerServerShared {
             }
 
             // Run connection check
-            runAsync(() -> SharedMethods.runServiceCheck(mojangAPI, logger));
+            executors.execute(SRExecutors.Pool.BACKGROUND, () -> SharedMethods.runServiceCheck(mojangAPI, logger));
         }
     }
 
@@ -290,6 +320,7 @@ public class SkinsRestorerBukkit extends SkinsRestorerServerShared {
             out.writeUTF("getSkins");
             out.writeUTF(player.getName());
             out.writeInt(page); // Page
+            out.writeByte(PluginMessageCodec.PROTOCOL_VERSION);
 
             player.sendPluginMessage(pluginInstance, "sr:messagechannel", bytes.toByteArray());
         } catch (IOException e) {
@@ -422,7 +453,7 @@ public class SkinsRestorerBukkit extends SkinsRestorerServerShared {
 
     @Override
     public void checkUpdate(boolean showUpToDate) {
-        runAsync(() -> updateChecker.checkForUpdate(new UpdateCallback() {
+        executors.execute(SRExecutors.Pool.BACKGROUND, () -> updateChecker.checkForUpdate(new UpdateCallback() {
             @Override
             public void updateAvailable(String newVersion, String downloadUrl, boolean hasDirectDownload) {
                 outdated = true;
@@ -463,11 +494,6 @@ public class SkinsRestorerBukkit extends SkinsRestorerServerShared {
         return pluginInstance.getResource(resource);
     }
 
-    @Override
-    public void runAsync(Runnable runnable) {
-        server.getScheduler().runTaskAsynchronously(pluginInstance, runnable);
-    }
-
     @Override
     public void runSync(Runnable runnable) {
         server.getScheduler().runTask(pluginInstance, runnable);
@@ -478,6 +504,18 @@ public class SkinsRestorerBukkit extends SkinsRestorerServerShared {
         server.getScheduler().runTaskTimerAsynchronously(pluginInstance, runnable, timeUnit.toSeconds(delay) * 20L, timeUnit.toSeconds(interval) * 20L);
     }
 
+    /**
+     * Runs the skin task of a joining player on the login pool.
+     * If too many players are joining at once it runs on the server scheduler instead, so the skin is still applied.
+     */
+    public void runLoginTask(String playerName, Runnable task) {
+        if (executors.execute(SRExecutors.Pool.LOGIN, task))
+            return;
+
+        logger.debug("Login pool is saturated, applying the skin of " + playerName + " on the server scheduler");
+        server.getScheduler().runTaskAsynchronously(pluginInstance, task);
+    }
+
     @Override
     public Collection<ISRPlayer> getOnlinePlayers() {
         return server.getOnlinePlayers().stream().map(WrapperBukkit::wrapPlayer).collect(Collectors.toList());
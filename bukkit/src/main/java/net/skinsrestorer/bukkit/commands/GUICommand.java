@@ -53,7 +53,7 @@ public class GUICommand extends BaseCommand {
     @CommandPermission("%skins")
     public void onDefault(Player player) {
         ISRPlayer srPlayer = wrapPlayer(player);
-        plugin.runAsync(() -> {
+        plugin.runAsync(srPlayer, () -> {
             if (!player.hasPermission("skinsrestorer.bypasscooldown") && plugin.getCooldownStorage().hasCooldown(player.getName())) {
                 srPlayer.sendMessage(Message.SKIN_COOLDOWN, plugin.getCooldownStorage().getCooldownSeconds(player.getName()));
                 return;
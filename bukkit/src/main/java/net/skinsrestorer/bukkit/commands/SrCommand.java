@@ -29,6 +29,7 @@ import lombok.RequiredArgsConstructor;
 import net.skinsrestorer.api.SkinVariant;
 import net.skinsrestorer.api.property.IProperty;
 import net.skinsrestorer.shared.reflection.exception.ReflectionException;
+import net.skinsrestorer.bukkit.SkinsGUI;
 import net.skinsrestorer.bukkit.SkinsRestorerBukkit;
 import net.skinsrestorer.shared.commands.ISRCommand;
 import net.skinsrestorer.shared.interfaces.ISRPlayer;
@@ -127,6 +128,7 @@ public class SrCommand extends BaseCommand implements ISRCommand {
     @Override
     public void reloadCustomHook() {
         plugin.getSkinApplierBukkit().setOptFileChecked(false);
+        SkinsGUI.clearCache();
     }
 
     @Override
@@ -24,7 +24,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import net.skinsrestorer.api.PlayerWrapper;
 import net.skinsrestorer.api.SkinsRestorerAPI;
-import net.skinsrestorer.api.exception.SkinRequestException;
 import net.skinsrestorer.bukkit.SkinsRestorerBukkit;
 import net.skinsrestorer.shared.listeners.SRLoginProfileEvent;
 import net.skinsrestorer.shared.listeners.SharedLoginProfileListener;
@@ -50,14 +49,8 @@ public class PlayerJoin extends SharedLoginProfileListener implements Listener {
         if (resourcePack && Config.RESOURCE_PACK_FIX)
             return;
 
-        plugin.runAsync(() -> {
-            try {
-                handleAsync(profileEvent).ifPresent(property ->
-                        SkinsRestorerAPI.getApi().applySkin(new PlayerWrapper(event.getPlayer()), property));
-            } catch (SkinRequestException e) {
-                plugin.getLogger().debug(e);
-            }
-        });
+        plugin.runLoginTask(event.getPlayer().getName(), () -> handleAsync(profileEvent, property ->
+                SkinsRestorerAPI.getApi().applySkin(new PlayerWrapper(event.getPlayer()), property)));
     }
 
     private SRLoginProfileEvent wrap(PlayerJoinEvent event) {
@@ -23,7 +23,6 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import net.skinsrestorer.api.PlayerWrapper;
 import net.skinsrestorer.api.SkinsRestorerAPI;
-import net.skinsrestorer.api.exception.SkinRequestException;
 import net.skinsrestorer.bukkit.SkinsRestorerBukkit;
 import net.skinsrestorer.shared.listeners.SRLoginProfileEvent;
 import net.skinsrestorer.shared.listeners.SharedLoginProfileListener;
@@ -49,14 +48,8 @@ public class PlayerResourcePackStatus extends SharedLoginProfileListener impleme
         if (handleSync(profileEvent))
             return;
 
-        plugin.runAsync(() -> {
-            try {
-                handleAsync(profileEvent).ifPresent(property ->
-                        SkinsRestorerAPI.getApi().applySkin(new PlayerWrapper(event.getPlayer()), property));
-            } catch (SkinRequestException e) {
-                plugin.getLogger().debug(e);
-            }
-        });
+        plugin.runLoginTask(event.getPlayer().getName(), () -> handleAsync(profileEvent, property ->
+                SkinsRestorerAPI.getApi().applySkin(new PlayerWrapper(event.getPlayer()), property)));
     }
 
     private SRLoginProfileEvent wrap(PlayerResourcePackStatusEvent event) {
@@ -29,9 +29,12 @@ import net.skinsrestorer.shared.exception.InitializeException;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.function.Consumer;
@@ -47,6 +50,8 @@ public final class SpigotSkinRefresher implements Consumer<Player> {
     private Enum<?> removePlayerEnum;
     private Enum<?> addPlayerEnum;
     private boolean useViabackwards = false;
+    // Resolved on the first refresh, the exact server classes are only known from a live player
+    private volatile RefreshPlan plan;
 
     public SpigotSkinRefresher(SkinsRestorerBukkit plugin) throws InitializeException {
         this.plugin = plugin;
@@ -88,6 +93,7 @@ public final class SpigotSkinRefresher implements Consumer<Player> {
             }
 
             getHandleMethod = ReflectionUtil.getBukkitClass("entity.CraftPlayer").getDeclaredMethod("getHandle");
+            getHandleMethod.setAccessible(true);
 
             plugin.runSync(() -> {
                 // Wait to run task in order for ViaVersion to determine server protocol
@@ -104,138 +110,395 @@ public final class SpigotSkinRefresher implements Consumer<Player> {
         }
     }
 
-    private void sendPacket(Object playerConnection, Object packet) throws ReflectionException {
-        ReflectionUtil.invokeMethod(playerConnection.getClass(), playerConnection, "sendPacket", new Class<?>[]{this.packet}, packet);
-    }
-
     @Override
     public void accept(Player player) {
         try {
             final Object entityPlayer = getHandleMethod.invoke(player);
-            Object removePlayer;
-            Object addPlayer;
-            try {
-                removePlayer = ReflectionUtil.invokeConstructor(playOutPlayerInfo, removePlayerEnum, ImmutableList.of(entityPlayer));
-                addPlayer = ReflectionUtil.invokeConstructor(playOutPlayerInfo, addPlayerEnum, ImmutableList.of(entityPlayer));
-            } catch (ReflectionException e) {
-                int ping = (int) ReflectionUtil.getObject(entityPlayer, "ping");
-                removePlayer = ReflectionUtil.invokeConstructor(playOutPlayerInfo, player.getPlayerListName(), false, 9999);
-                addPlayer = ReflectionUtil.invokeConstructor(playOutPlayerInfo, player.getPlayerListName(), true, ping);
-            }
 
-            // Slowly getting from object to object till we get what is needed for
-            // the respawn packet
-            Object world = ReflectionUtil.invokeMethod(entityPlayer, "getWorld");
-            Object difficulty;
-            try {
-                difficulty = ReflectionUtil.invokeMethod(world, "getDifficulty");
-            } catch (Exception e) {
-                difficulty = ReflectionUtil.getObject(world, "difficulty");
+            getPlan(player, entityPlayer).refresh(player, entityPlayer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private RefreshPlan getPlan(Player player, Object entityPlayer) throws ReflectiveOperationException {
+        RefreshPlan plan = this.plan;
+        if (plan == null) {
+            synchronized (this) {
+                plan = this.plan;
+                if (plan == null) {
+                    plan = new RefreshPlan(player, entityPlayer);
+                    this.plan = plan;
+                    plugin.getLogger().debug("Resolved SpigotSkinRefresher packets");
+                }
             }
+        }
+
+        return plan;
+    }
+
+    private Object getFromListExcluded(List<Object> list, Object... excluded) {
+        for (Object obj : list) {
+            if (obj != excluded)
+                return obj;
+        }
 
-            Object worldData;
+        return null;
+    }
+
+    private static long hashSeed(Player player) {
+        //noinspection UnstableApiUsage
+        return Hashing.sha256().hashString(String.valueOf(player.getWorld().getSeed()), StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * Takes the method of the highest class declaring it. The plan is resolved from the first player,
+     * other players, worlds or connections may be instances of a different subclass, which a method
+     * declared by the runtime class of the first one could not be invoked on.
+     */
+    private static Method findMethod(Class<?> clazz, String name, Class<?>... args) {
+        Method method = null;
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
             try {
-                worldData = ReflectionUtil.invokeMethod(world, "getWorldData");
-            } catch (Exception ignored) {
-                worldData = ReflectionUtil.getObject(world, "worldData");
+                method = current.getDeclaredMethod(name, args);
+            } catch (NoSuchMethodException e) {
+                // Keep looking in the super classes
             }
+        }
 
-            Object worldType;
+        if (method == null) {
             try {
-                worldType = ReflectionUtil.invokeMethod(worldData, "getType");
-            } catch (Exception ignored) {
-                worldType = ReflectionUtil.invokeMethod(worldData, "getGameType");
+                method = clazz.getMethod(name, args);
+            } catch (NoSuchMethodException e) {
+                return null;
             }
+        }
 
-            Object playerIntManager = ReflectionUtil.getFieldByType(entityPlayer, "PlayerInteractManager");
-            Enum<?> enumGamemode = (Enum<?>) ReflectionUtil.invokeMethod(playerIntManager, "getGameMode");
+        method.setAccessible(true);
+        return method;
+    }
 
-            @SuppressWarnings("deprecation")
-            int gamemodeId = player.getGameMode().getValue();
-            @SuppressWarnings("deprecation")
-            int dimension = player.getWorld().getEnvironment().getId();
+    private static Method getMethod(Class<?> clazz, String name, Class<?>... args) throws ReflectionException {
+        Method method = findMethod(clazz, name, args);
+        if (method == null)
+            throw new ReflectionException("Could not find method " + name + " in " + clazz.getSimpleName());
 
-            Object respawn;
+        return method;
+    }
+
+    /**
+     * Takes the field of the class declaring it, for the same reason as {@link #findMethod(Class, String, Class[])}.
+     */
+    private static Field findField(Class<?> clazz, String name) {
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
             try {
-                respawn = ReflectionUtil.invokeConstructor(playOutRespawn, dimension, difficulty, worldType, enumGamemode);
-            } catch (Exception ignored) {
-                // 1.13.x needs the dimensionManager instead of dimension id
-                Object worldObject = ReflectionUtil.getFieldByType(entityPlayer, "World");
-                Object dimensionManager = getDimensionManager(worldObject, dimension);
+                Field field = current.getDeclaredField(name);
+                field.setAccessible(true);
+                return field;
+            } catch (NoSuchFieldException e) {
+                // Keep looking in the super classes
+            }
+        }
 
-                try {
-                    respawn = ReflectionUtil.invokeConstructor(playOutRespawn, dimensionManager, difficulty, worldType, enumGamemode);
-                } catch (Exception ignored2) {
-                    // 1.14.x removed the difficulty from PlayOutRespawn
-                    // https://wiki.vg/Pre-release_protocol#Respawn
-                    try {
-                        respawn = ReflectionUtil.invokeConstructor(playOutRespawn, dimensionManager, worldType, enumGamemode);
-                    } catch (Exception ignored3) {
-                        // Minecraft 1.15 changes
-                        // PacketPlayOutRespawn now needs the world seed
+        try {
+            Field field = clazz.getField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
 
-                        //noinspection UnstableApiUsage
-                        long seedEncrypted = Hashing.sha256().hashString(String.valueOf(player.getWorld().getSeed()), StandardCharsets.UTF_8).asLong();
-                        try {
-                            respawn = ReflectionUtil.invokeConstructor(playOutRespawn, dimensionManager, seedEncrypted, worldType, enumGamemode);
-                        } catch (Exception ignored5) {
-                            Object dimensionKey = ReflectionUtil.invokeMethod(worldObject, "getDimensionKey");
-                            boolean debug = (boolean) ReflectionUtil.invokeMethod(worldObject, "isDebugWorld");
-                            boolean flat = (boolean) ReflectionUtil.invokeMethod(worldObject, "isFlatWorld");
-                            List<Object> gameModeList = ReflectionUtil.getFieldByTypeList(playerIntManager, "EnumGamemode");
-
-                            Enum<?> enumGamemodePrevious = (Enum<?>) getFromListExcluded(gameModeList, enumGamemode);
-
-                            // Minecraft 1.16.1 changes
-                            try {
-                                Object typeKey = ReflectionUtil.invokeMethod(worldObject, "getTypeKey");
-
-                                respawn = ReflectionUtil.invokeConstructor(playOutRespawn, typeKey, dimensionKey, seedEncrypted, enumGamemode, enumGamemodePrevious, debug, flat, true);
-                            } catch (Exception ignored6) {
-                                // Minecraft 1.16.2 changes
-                                respawn = ReflectionUtil.invokeConstructor(playOutRespawn, dimensionManager, dimensionKey, seedEncrypted, enumGamemode, enumGamemodePrevious, debug, flat, true);
-                            }
-                        }
-                    }
+    /**
+     * Same order as {@link ReflectionUtil#getFieldByTypeList(Object, String)}, declared fields first, then those of super classes.
+     */
+    private static List<Field> findFieldsByType(Class<?> clazz, String typeName) {
+        List<Field> fields = new ArrayList<>();
+        for (Class<?> current = clazz; current != null; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if (field.getType().getSimpleName().equalsIgnoreCase(typeName)) {
+                    field.setAccessible(true);
+                    fields.add(field);
                 }
             }
+        }
+
+        return fields;
+    }
+
+    private static Field getFieldByType(Class<?> clazz, String typeName) throws ReflectionException {
+        List<Field> fields = findFieldsByType(clazz, typeName);
+        if (fields.isEmpty())
+            throw new ReflectionException("Could not find field of type " + typeName + " in " + clazz.getSimpleName());
+
+        return fields.get(0);
+    }
+
+    /**
+     * @return reads the value through a method without arguments, or else through a field, null if neither exists
+     */
+    private static ValueReader findReader(Class<?> clazz, String methodName, String fieldName) {
+        Method method = findMethod(clazz, methodName);
+        if (method != null)
+            return method::invoke;
+
+        Field field = fieldName == null ? null : findField(clazz, fieldName);
+        if (field != null)
+            return field::get;
+
+        return null;
+    }
+
+    /**
+     * Same matching as {@link ReflectionUtil#invokeConstructor(Class, Object...)}, but only looks the constructor up.
+     *
+     * @return null if no constructor takes these arguments
+     */
+    private static Constructor<?> findConstructor(Class<?> clazz, Object... args) {
+        for (Constructor<?> constructor : clazz.getConstructors()) {
+            Class<?>[] parameters = constructor.getParameterTypes();
+            if (parameters.length != args.length)
+                continue;
+
+            int i = 0;
+            while (i < args.length && isAssignable(parameters[i], args[i])) {
+                i++;
+            }
 
+            if (i == args.length) {
+                constructor.setAccessible(true);
+                return constructor;
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean isAssignable(Class<?> parameter, Object arg) {
+        if (arg == null)
+            return false;
+
+        return parameter.isInstance(arg) || (parameter.isPrimitive() && MethodType.methodType(parameter).wrap().returnType().isInstance(arg));
+    }
+
+    @FunctionalInterface
+    private interface ValueReader {
+        Object get(Object target) throws ReflectiveOperationException;
+    }
+
+    @FunctionalInterface
+    private interface PacketFactory {
+        Object create(Player player, Object entityPlayer) throws ReflectiveOperationException;
+    }
+
+    /**
+     * Constructors, methods and fields that work on this server, looked up once so a refresh is a plain sequence of calls.
+     * The lookup tries the same server version specific variants in the same order the refresh used to try them on every call.
+     */
+    private final class RefreshPlan {
+        private final PacketFactory removePlayerFactory;
+        private final PacketFactory addPlayerFactory;
+        private final PacketFactory respawnFactory;
+        private final Constructor<?> positionConstructor;
+        private final PositionVariant positionVariant;
+        private final Constructor<?> heldItemSlotConstructor;
+        private final Field playerConnectionField;
+        private final Method sendPacketMethod;
+        private final Method updateAbilitiesMethod;
+        private final Method updateScaledHealthMethod;
+        private final Method triggerHealthUpdateMethod;
+        private final Field worldField;
+        private final Method isFlatWorldMethod;
+        private Method getWorldMethod;
+        private ValueReader difficultyReader;
+        private ValueReader worldDataReader;
+        private ValueReader worldTypeReader;
+        private Field playerInteractManagerField;
+        private Method getGameModeMethod;
+        private List<Field> gameModeFields;
+        private DimensionManagerReader dimensionManagerReader;
+
+        private RefreshPlan(Player player, Object entityPlayer) throws ReflectiveOperationException {
+            Class<?> entityPlayerClass = entityPlayer.getClass();
+
+            // Player info
+            Constructor<?> playerInfoConstructor = findConstructor(playOutPlayerInfo, removePlayerEnum, ImmutableList.of(entityPlayer));
+            if (playerInfoConstructor != null) {
+                removePlayerFactory = (p, e) -> playerInfoConstructor.newInstance(removePlayerEnum, ImmutableList.of(e));
+                addPlayerFactory = (p, e) -> playerInfoConstructor.newInstance(addPlayerEnum, ImmutableList.of(e));
+            } else {
+                Field pingField = findField(entityPlayerClass, "ping");
+                Constructor<?> legacyConstructor = findConstructor(playOutPlayerInfo, player.getPlayerListName(), false, 9999);
+                if (pingField == null || legacyConstructor == null)
+                    throw new ReflectionException("Could not find PacketPlayOutPlayerInfo constructor");
+
+                removePlayerFactory = (p, e) -> legacyConstructor.newInstance(p.getPlayerListName(), false, 9999);
+                addPlayerFactory = (p, e) -> legacyConstructor.newInstance(p.getPlayerListName(), true, pingField.get(e));
+            }
+
+            // Respawn
+            worldField = findFieldsByType(entityPlayerClass, "World").stream().findFirst().orElse(null);
+            Object worldObject = worldField == null ? null : worldField.get(entityPlayer);
+            isFlatWorldMethod = worldObject == null ? null : findMethod(worldObject.getClass(), "isFlatWorld");
+            respawnFactory = resolveRespawn(player, entityPlayer, worldObject);
+
+            // Position
             Location l = player.getLocation();
-            Object pos;
-            try {
-                // 1.17+
-                pos = ReflectionUtil.invokeConstructor(playOutPosition, l.getX(), l.getY(), l.getZ(), l.getYaw(), l.getPitch(), new HashSet<Enum<?>>(), 0, false);
-            } catch (Exception e1) {
-                try {
-                    // 1.9-1.16.5
-                    pos = ReflectionUtil.invokeConstructor(playOutPosition, l.getX(), l.getY(), l.getZ(), l.getYaw(), l.getPitch(), new HashSet<Enum<?>>(), 0);
-                } catch (Exception e2) {
-                    try {
-                        // 1.8
-                        pos = ReflectionUtil.invokeConstructor(playOutPosition, l.getX(), l.getY(), l.getZ(), l.getYaw(), l.getPitch(), new HashSet<Enum<?>>());
-                    } catch (Exception e3) {
-                        // 1.7
-                        pos = ReflectionUtil.invokeConstructor(playOutPosition, l.getX(), l.getY(), l.getZ(), l.getYaw(), l.getPitch(), false);
-                    }
+            PositionVariant positionVariant = null;
+            Constructor<?> positionConstructor = null;
+            for (PositionVariant variant : PositionVariant.values()) {
+                positionConstructor = findConstructor(playOutPosition, variant.getArgs(l));
+                if (positionConstructor != null) {
+                    positionVariant = variant;
+                    break;
                 }
             }
 
-            Object slot = ReflectionUtil.invokeConstructor(playOutHeldItemSlot, player.getInventory().getHeldItemSlot());
-            Object playerCon = ReflectionUtil.getFieldByType(entityPlayer, "PlayerConnection");
+            if (positionConstructor == null)
+                throw new ReflectionException("Could not find PacketPlayOutPosition constructor");
 
-            sendPacket(playerCon, removePlayer);
-            sendPacket(playerCon, addPlayer);
+            this.positionConstructor = positionConstructor;
+            this.positionVariant = positionVariant;
+
+            heldItemSlotConstructor = findConstructor(playOutHeldItemSlot, player.getInventory().getHeldItemSlot());
+            if (heldItemSlotConstructor == null)
+                throw new ReflectionException("Could not find PacketPlayOutHeldItemSlot constructor");
+
+            playerConnectionField = getFieldByType(entityPlayerClass, "PlayerConnection");
+            sendPacketMethod = getMethod(playerConnectionField.get(entityPlayer).getClass(), "sendPacket", packet);
+            updateAbilitiesMethod = getMethod(entityPlayerClass, "updateAbilities");
+            updateScaledHealthMethod = getMethod(player.getClass(), "updateScaledHealth");
+            triggerHealthUpdateMethod = getMethod(entityPlayerClass, "triggerHealthUpdate");
+        }
+
+        private PacketFactory resolveRespawn(Player player, Object entityPlayer, Object worldObject) throws ReflectiveOperationException {
+            getWorldMethod = getMethod(entityPlayer.getClass(), "getWorld");
+            Object world = getWorldMethod.invoke(entityPlayer);
+            difficultyReader = findReader(world.getClass(), "getDifficulty", "difficulty");
+            worldDataReader = findReader(world.getClass(), "getWorldData", "worldData");
+            Object worldData = worldDataReader == null ? null : worldDataReader.get(world);
+            if (worldData != null) {
+                worldTypeReader = findReader(worldData.getClass(), "getType", null);
+                if (worldTypeReader == null)
+                    worldTypeReader = findReader(worldData.getClass(), "getGameType", null);
+            }
+
+            playerInteractManagerField = getFieldByType(entityPlayer.getClass(), "PlayerInteractManager");
+            Object playerIntManager = playerInteractManagerField.get(entityPlayer);
+            getGameModeMethod = getMethod(playerIntManager.getClass(), "getGameMode");
+
+            Object difficulty = difficultyReader == null ? null : difficultyReader.get(world);
+            Object worldType = worldTypeReader == null || worldData == null ? null : worldTypeReader.get(worldData);
+            Object enumGamemode = getGameModeMethod.invoke(playerIntManager);
+            int dimension = getDimension(player);
+
+            Constructor<?> constructor = findConstructor(playOutRespawn, dimension, difficulty, worldType, enumGamemode);
+            if (constructor != null)
+                return (p, e) -> constructor.newInstance(getDimension(p), getDifficulty(e), getWorldType(e), getGameMode(e));
+
+            // 1.13.x needs the dimensionManager instead of dimension id
+            if (worldObject == null)
+                throw new ReflectionException("Could not find PacketPlayOutRespawn constructor");
+
+            dimensionManagerReader = resolveDimensionManager(worldObject.getClass());
+            Object dimensionManager = dimensionManagerReader == null ? null : dimensionManagerReader.get(worldObject, dimension);
+
+            Constructor<?> dimensionManagerConstructor = findConstructor(playOutRespawn, dimensionManager, difficulty, worldType, enumGamemode);
+            if (dimensionManagerConstructor != null)
+                return (p, e) -> dimensionManagerConstructor.newInstance(getDimensionManager(p, e), getDifficulty(e), getWorldType(e), getGameMode(e));
+
+            // 1.14.x removed the difficulty from PlayOutRespawn
+            // https://wiki.vg/Pre-release_protocol#Respawn
+            Constructor<?> noDifficultyConstructor = findConstructor(playOutRespawn, dimensionManager, worldType, enumGamemode);
+            if (noDifficultyConstructor != null)
+                return (p, e) -> noDifficultyConstructor.newInstance(getDimensionManager(p, e), getWorldType(e), getGameMode(e));
+
+            // Minecraft 1.15 changes
+            // PacketPlayOutRespawn now needs the world seed
+            Object seedEncrypted = hashSeed(player);
+            Constructor<?> seedConstructor = findConstructor(playOutRespawn, dimensionManager, seedEncrypted, worldType, enumGamemode);
+            if (seedConstructor != null)
+                return (p, e) -> seedConstructor.newInstance(getDimensionManager(p, e), hashSeed(p), getWorldType(e), getGameMode(e));
+
+            Method getDimensionKeyMethod = getMethod(worldObject.getClass(), "getDimensionKey");
+            Method isDebugWorldMethod = getMethod(worldObject.getClass(), "isDebugWorld");
+            if (isFlatWorldMethod == null)
+                throw new ReflectionException("Could not find method isFlatWorld in " + worldObject.getClass().getSimpleName());
+
+            gameModeFields = findFieldsByType(playerIntManager.getClass(), "EnumGamemode");
+            Object dimensionKey = getDimensionKeyMethod.invoke(worldObject);
+            Object debug = isDebugWorldMethod.invoke(worldObject);
+            Object flat = isFlatWorldMethod.invoke(worldObject);
+            Object enumGamemodePrevious = getPreviousGameMode(entityPlayer, enumGamemode);
+
+            // Minecraft 1.16.1 changes
+            Method getTypeKeyMethod = findMethod(worldObject.getClass(), "getTypeKey");
+            if (getTypeKeyMethod != null) {
+                Object typeKey = getTypeKeyMethod.invoke(worldObject);
+                Constructor<?> typeKeyConstructor = findConstructor(playOutRespawn, typeKey, dimensionKey, seedEncrypted, enumGamemode, enumGamemodePrevious, debug, flat, true);
+                if (typeKeyConstructor != null)
+                    return (p, e) -> {
+                        Object w = worldField.get(e);
+                        Object gameMode = getGameMode(e);
+                        return typeKeyConstructor.newInstance(getTypeKeyMethod.invoke(w), getDimensionKeyMethod.invoke(w), hashSeed(p), gameMode,
+                                getPreviousGameMode(e, gameMode), isDebugWorldMethod.invoke(w), isFlatWorldMethod.invoke(w), true);
+                    };
+            }
+
+            // Minecraft 1.16.2 changes
+            Constructor<?> dimensionKeyConstructor = findConstructor(playOutRespawn, dimensionManager, dimensionKey, seedEncrypted, enumGamemode, enumGamemodePrevious, debug, flat, true);
+            if (dimensionKeyConstructor != null)
+                return (p, e) -> {
+                    Object w = worldField.get(e);
+                    Object gameMode = getGameMode(e);
+                    return dimensionKeyConstructor.newInstance(getDimensionManager(p, e), getDimensionKeyMethod.invoke(w), hashSeed(p), gameMode,
+                            getPreviousGameMode(e, gameMode), isDebugWorldMethod.invoke(w), isFlatWorldMethod.invoke(w), true);
+                };
+
+            throw new ReflectionException("Could not find PacketPlayOutRespawn constructor");
+        }
+
+        private DimensionManagerReader resolveDimensionManager(Class<?> worldObjectClass) throws ReflectionException {
+            List<Field> fields = findFieldsByType(worldObjectClass, "DimensionManager");
+            if (!fields.isEmpty()) {
+                Field field = fields.get(0);
+                return (worldObject, dimension) -> field.get(worldObject);
+            }
+
+            Class<?> dimensionManagerClass = ReflectionUtil.getNMSClass("DimensionManager", "net.minecraft.world.level.dimension.DimensionManager");
+            for (Method m : dimensionManagerClass.getDeclaredMethods()) {
+                if (m.getReturnType() == dimensionManagerClass && m.getParameterCount() == 1 && m.getParameterTypes()[0] == Integer.TYPE) {
+                    m.setAccessible(true);
+                    return (worldObject, dimension) -> m.invoke(null, dimension);
+                }
+            }
+
+            return null;
+        }
+
+        private void refresh(Player player, Object entityPlayer) throws ReflectiveOperationException {
+            Object removePlayer = removePlayerFactory.create(player, entityPlayer);
+            Object addPlayer = addPlayerFactory.create(player, entityPlayer);
+            Object respawn = respawnFactory.create(player, entityPlayer);
+
+            Location l = player.getLocation();
+            Object pos = positionConstructor.newInstance(positionVariant.getArgs(l));
+            Object slot = heldItemSlotConstructor.newInstance(player.getInventory().getHeldItemSlot());
+            Object playerCon = playerConnectionField.get(entityPlayer);
+
+            sendPacketMethod.invoke(playerCon, removePlayer);
+            sendPacketMethod.invoke(playerCon, addPlayer);
 
             boolean sendRespawnPacketDirectly = true;
-            if (useViabackwards) {
+            if (useViabackwards && worldField != null && isFlatWorldMethod != null) {
                 try {
-                    Object worldObject = ReflectionUtil.getFieldByType(entityPlayer, "World");
-                    boolean flat = (boolean) ReflectionUtil.invokeMethod(worldObject, "isFlatWorld");
+                    boolean flat = (boolean) isFlatWorldMethod.invoke(worldField.get(entityPlayer));
+                    @SuppressWarnings("deprecation")
+                    int gamemodeId = player.getGameMode().getValue();
 
-                    //noinspection UnstableApiUsage
                     sendRespawnPacketDirectly = ViaWorkaround.sendCustomPacketVia(new ViaPacketData(player,
-                            dimension,
-                            Hashing.sha256().hashString(String.valueOf(player.getWorld().getSeed()), StandardCharsets.UTF_8).asLong(),
+                            getDimension(player),
+                            hashSeed(player),
                             ((Integer) gamemodeId).shortValue(),
                             flat));
                 } catch (Exception e) {
@@ -244,17 +507,17 @@ public final class SpigotSkinRefresher implements Consumer<Player> {
             }
 
             if (sendRespawnPacketDirectly) {
-                sendPacket(playerCon, respawn);
+                sendPacketMethod.invoke(playerCon, respawn);
             }
 
-            ReflectionUtil.invokeMethod(entityPlayer, "updateAbilities");
+            updateAbilitiesMethod.invoke(entityPlayer);
 
-            sendPacket(playerCon, pos);
-            sendPacket(playerCon, slot);
+            sendPacketMethod.invoke(playerCon, pos);
+            sendPacketMethod.invoke(playerCon, slot);
 
-            ReflectionUtil.invokeMethod(player, "updateScaledHealth");
+            updateScaledHealthMethod.invoke(player);
             player.updateInventory();
-            ReflectionUtil.invokeMethod(entityPlayer, "triggerHealthUpdate");
+            triggerHealthUpdateMethod.invoke(entityPlayer);
 
             if (player.isOp()) {
                 plugin.runSync(() -> {
@@ -263,38 +526,66 @@ public final class SpigotSkinRefresher implements Consumer<Player> {
                     player.setOp(true);
                 });
             }
-        } catch (ReflectionException | InvocationTargetException | IllegalAccessException e) {
-            e.printStackTrace();
         }
-    }
 
-    private Object getFromListExcluded(List<Object> list, Object... excluded) {
-        for (Object obj : list) {
-            if (obj != excluded)
-                return obj;
+        @SuppressWarnings("deprecation")
+        private int getDimension(Player player) {
+            return player.getWorld().getEnvironment().getId();
         }
 
-        return null;
-    }
+        private Object getDifficulty(Object entityPlayer) throws ReflectiveOperationException {
+            return difficultyReader.get(getWorldMethod.invoke(entityPlayer));
+        }
 
-    private Object getDimensionManager(Object worldObject, int dimension) throws ReflectionException {
-        try {
-            return ReflectionUtil.getFieldByType(worldObject, "DimensionManager");
-        } catch (ReflectionException e) {
-            try {
-                Class<?> dimensionManagerClass = ReflectionUtil.getNMSClass("DimensionManager", "net.minecraft.world.level.dimension.DimensionManager");
+        private Object getWorldType(Object entityPlayer) throws ReflectiveOperationException {
+            return worldTypeReader.get(worldDataReader.get(getWorldMethod.invoke(entityPlayer)));
+        }
 
-                for (Method m : dimensionManagerClass.getDeclaredMethods()) {
-                    if (m.getReturnType() == dimensionManagerClass && m.getParameterCount() == 1 && m.getParameterTypes()[0] == Integer.TYPE) {
-                        m.setAccessible(true);
-                        return m.invoke(null, dimension);
-                    }
-                }
-            } catch (InvocationTargetException | IllegalAccessException e2) {
-                e2.printStackTrace();
+        private Object getGameMode(Object entityPlayer) throws ReflectiveOperationException {
+            return getGameModeMethod.invoke(playerInteractManagerField.get(entityPlayer));
+        }
+
+        private Object getPreviousGameMode(Object entityPlayer, Object gameMode) throws ReflectiveOperationException {
+            Object playerIntManager = playerInteractManagerField.get(entityPlayer);
+            List<Object> gameModeList = new ArrayList<>(gameModeFields.size());
+            for (Field field : gameModeFields) {
+                gameModeList.add(field.get(playerIntManager));
             }
+
+            return getFromListExcluded(gameModeList, gameMode);
         }
 
-        throw new ReflectionException("Could not get DimensionManager from " + worldObject.getClass().getSimpleName());
+        private Object getDimensionManager(Player player, Object entityPlayer) throws ReflectiveOperationException {
+            return dimensionManagerReader.get(worldField.get(entityPlayer), getDimension(player));
+        }
+    }
+
+    @FunctionalInterface
+    private interface DimensionManagerReader {
+        Object get(Object worldObject, int dimension) throws ReflectiveOperationException;
+    }
+
+    private enum PositionVariant {
+        // 1.17+
+        V1_17,
+        // 1.9-1.16.5
+        V1_9,
+        // 1.8
+        V1_8,
+        // 1.7
+        V1_7;
+
+        private Object[] getArgs(Location l) {
+            switch (this) {
+                case V1_17:
+                    return new Object[]{l.getX(), l.getY(), l.getZ(), l.getYaw(), l.getPitch(), new HashSet<Enum<?>>(), 0, false};
+                case V1_9:
+                    return new Object[]{l.getX(), l.getY(), l.getZ(), l.getYaw(), l.getPitch(), new HashSet<Enum<?>>(), 0};
+                case V1_8:
+                    return new Object[]{l.getX(), l.getY(), l.getZ(), l.getYaw(), l.getPitch(), new HashSet<Enum<?>>()};
+                default:
+                    return new Object[]{l.getX(), l.getY(), l.getZ(), l.getYaw(), l.getPitch(), false};
+            }
+        }
     }
 }
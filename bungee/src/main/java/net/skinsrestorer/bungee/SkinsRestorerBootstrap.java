@@ -22,8 +22,17 @@ package net.skinsrestorer.bungee;
 import net.md_5.bungee.api.plugin.Plugin;
 
 public class SkinsRestorerBootstrap extends Plugin {
+    private SkinsRestorerBungee skinsRestorerBungee;
+
     @Override
     public void onEnable() {
-        new SkinsRestorerBungee(this).pluginStartup();
+        skinsRestorerBungee = new SkinsRestorerBungee(this);
+        skinsRestorerBungee.pluginStartup();
+    }
+
+    @Override
+    public void onDisable() {
+        if (skinsRestorerBungee != null)
+            skinsRestorerBungee.pluginShutdown();
     }
 }
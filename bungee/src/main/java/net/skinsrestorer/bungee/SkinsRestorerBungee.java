@@ -47,6 +47,7 @@ import net.skinsrestorer.shared.plugin.SkinsRestorerProxyShared;
 import net.skinsrestorer.shared.reflection.ReflectionUtil;
 import net.skinsrestorer.shared.storage.Config;
 import net.skinsrestorer.shared.storage.Message;
+import net.skinsrestorer.shared.utils.SRExecutors;
 import net.skinsrestorer.shared.utils.SharedMethods;
 import net.skinsrestorer.shared.utils.log.JavaLoggerImpl;
 import net.skinsrestorer.shared.utils.log.SRLogger;
@@ -139,7 +140,7 @@ public class SkinsRestorerBungee extends SkinsRestorerProxyShared {
         proxy.getPluginManager().registerListener(pluginInstance, new PluginMessageListener(this));
 
         // Run connection check
-        runAsync(() -> SharedMethods.runServiceCheck(mojangAPI, logger));
+        executors.execute(SRExecutors.Pool.BACKGROUND, () -> SharedMethods.runServiceCheck(mojangAPI, logger));
     }
 
     private void initCommands() {
@@ -160,11 +161,6 @@ public class SkinsRestorerBungee extends SkinsRestorerProxyShared {
         return getClass().getClassLoader().getResourceAsStream(resource);
     }
 
-    @Override
-    public void runAsync(Runnable runnable) {
-        proxy.getScheduler().runAsync(pluginInstance, runnable);
-    }
-
     @Override
     public void runRepeatAsync(Runnable runnable, int delay, int interval, TimeUnit timeUnit) {
         proxy.getScheduler().schedule(pluginInstance, runnable, delay, interval, timeUnit);
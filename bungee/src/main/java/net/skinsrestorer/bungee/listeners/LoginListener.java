@@ -26,10 +26,10 @@ import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.connection.InitialHandler;
 import net.md_5.bungee.event.EventHandler;
 import net.md_5.bungee.event.EventPriority;
-import net.skinsrestorer.api.exception.SkinRequestException;
 import net.skinsrestorer.bungee.SkinsRestorerBungee;
 import net.skinsrestorer.shared.listeners.SRLoginProfileEvent;
 import net.skinsrestorer.shared.listeners.SharedLoginProfileListener;
+import net.skinsrestorer.shared.utils.SRExecutors;
 
 @RequiredArgsConstructor
 @Getter
@@ -44,16 +44,13 @@ public class LoginListener extends SharedLoginProfileListener implements Listene
 
         event.registerIntent(plugin.getPluginInstance());
 
-        plugin.runAsync(() -> {
-            try {
-                handleAsync(profileEvent).ifPresent(property ->
-                        plugin.getSkinApplierBungee().applySkin(property, (InitialHandler) event.getConnection()));
-            } catch (SkinRequestException e) {
-                plugin.getLogger().debug(e);
-            }
+        boolean accepted = plugin.getExecutors().execute(SRExecutors.Pool.LOGIN, () -> handleAsync(profileEvent, property ->
+                plugin.getSkinApplierBungee().applySkin(property, (InitialHandler) event.getConnection()))
+                .thenRun(() -> event.completeIntent(plugin.getPluginInstance())));
 
+        // Too many players are joining at once, let this one in without applying a skin
+        if (!accepted)
             event.completeIntent(plugin.getPluginInstance());
-        });
     }
 
     private SRLoginProfileEvent wrap(LoginEvent event) {
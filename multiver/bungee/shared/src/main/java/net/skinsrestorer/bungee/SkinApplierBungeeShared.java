@@ -28,13 +28,11 @@ import net.skinsrestorer.api.property.IProperty;
 import net.skinsrestorer.shared.reflection.exception.ReflectionException;
 import net.skinsrestorer.shared.interfaces.ISRPlugin;
 import net.skinsrestorer.shared.storage.Config;
+import net.skinsrestorer.shared.utils.PluginMessageCodec;
 import net.skinsrestorer.shared.utils.log.SRLogger;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
 import java.util.List;
 
 @RequiredArgsConstructor
@@ -87,20 +85,9 @@ public abstract class SkinApplierBungeeShared {
 
         log.debug("Sending skin update request for " + player.getName());
 
-        ByteArrayOutputStream b = new ByteArrayOutputStream();
-        DataOutputStream out = new DataOutputStream(b);
-        try {
-            out.writeUTF("SkinUpdate");
-
-            if (textures != null) {
-                out.writeUTF(textures.getName());
-                out.writeUTF(textures.getValue());
-                out.writeUTF(textures.getSignature());
-            }
+        byte[] data = textures == null ? PluginMessageCodec.encodeSkinUpdate(null, null, null)
+                : PluginMessageCodec.encodeSkinUpdate(textures.getName(), textures.getValue(), textures.getSignature());
 
-            player.getServer().sendData("sr:skinchange", b.toByteArray());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        player.getServer().sendData("sr:skinchange", data);
     }
 }
@@ -22,7 +22,6 @@ package net.skinsrestorer.paper;
 import com.destroystokyo.paper.profile.ProfileProperty;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import net.skinsrestorer.api.exception.SkinRequestException;
 import net.skinsrestorer.shared.interfaces.ISRPlugin;
 import net.skinsrestorer.shared.listeners.SRLoginProfileEvent;
 import net.skinsrestorer.shared.listeners.SharedLoginProfileListener;
@@ -42,12 +41,9 @@ public class PaperPlayerJoinEvent extends SharedLoginProfileListener implements
         if (handleSync(profileEvent))
             return;
 
-        try {
-            handleAsync(profileEvent).ifPresent(property ->
-                    event.getPlayerProfile().setProperty(new ProfileProperty(property.getName(), property.getValue(), property.getSignature())));
-        } catch (SkinRequestException e) {
-            plugin.getLogger().debug(e);
-        }
+        // The pre login event is already async, the profile has to be complete when it returns
+        handleAsync(profileEvent, property ->
+                event.getPlayerProfile().setProperty(new ProfileProperty(property.getName(), property.getValue(), property.getSignature()))).join();
     }
 
     private SRLoginProfileEvent wrap(AsyncPlayerPreLoginEvent event) {
@@ -36,9 +36,7 @@ import net.skinsrestorer.shared.utils.connections.ServiceChecker;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.*;
 
 import static net.skinsrestorer.shared.utils.SharedMethods.getRootCause;
 
@@ -63,6 +61,7 @@ public interface ISRCommand {
             e.printStackTrace();
         }
         Config.load(plugin.getDataFolder(), plugin.getResource("config.yml"), plugin.getLogger());
+        plugin.getSkinStorage().reloadCaches();
 
         plugin.prepareACF(plugin.getManager(), plugin.getLogger());
 
@@ -73,7 +72,7 @@ public interface ISRCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             sender.sendMessage("§7Checking needed services for SR to work properly...");
 
             List<String> statusMessages = new LinkedList<>();
@@ -108,6 +107,11 @@ public interface ISRCommand {
             statusMessages.add("§7Server: §6" + getPlatformVersion());
             statusMessages.add("§7ProxyMode: §6" + getProxyMode());
             statusMessages.add("§7Commit: §6" + BuildData.COMMIT.substring(0, 7));
+            statusMessages.add("§7Skin cache: §6" + plugin.getSkinStorage().getSkinDataCache().getStatsString());
+            statusMessages.add("§7Player cache: §6" + plugin.getSkinStorage().getPlayerSkinCache().getStatsString());
+            statusMessages.add("§7Lookup services: §6" + plugin.getMojangAPI().getProviderChain().getStatus());
+            statusMessages.add("§7Thread pools: §6" + plugin.getExecutors().getStatus());
+            statusMessages.add("§7Join storm: §6" + plugin.getJoinStormGuard().getStatus());
             statusMessages.add("§7Finished checking services.");
             statusMessages.add(breakLine);
             statusMessages.forEach(sender::sendMessage);
@@ -118,7 +122,7 @@ public interface ISRCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             switch (playerOrSkin) {
                 case PLAYER:
                     plugin.getSkinStorage().removeSkinOfPlayer(target);
@@ -136,7 +140,7 @@ public interface ISRCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             try {
                 List<IProperty> properties = getPropertiesOfPlayer(target);
 
@@ -178,7 +182,7 @@ public interface ISRCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             try {
                 SkinsRestorerAPI.getApi().applySkin(target.getWrapper());
                 sender.sendMessage(Message.SUCCES_ADMIN_APPLYSKIN);
@@ -192,7 +196,7 @@ public interface ISRCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             try {
                 if (C.validUrl(skinUrl)) {
                     plugin.getSkinStorage().setSkinData(name, SkinsRestorerAPI.getApi().genSkinUrl(skinUrl, skinVariant),
@@ -211,7 +215,7 @@ public interface ISRCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             if (!sender.isConsole()) {
                 sender.sendMessage(Message.ONLY_ALLOWED_ON_CONSOLE);
                 return;
@@ -232,9 +236,14 @@ public interface ISRCommand {
 
                 plugin.getSkinStorage().setSkinData(skinName, skinProps);
 
-                for (ISRPlayer player : plugin.getOnlinePlayers()) {
-                    final String pName = player.getName();
-                    plugin.getSkinStorage().setSkinOfPlayer(pName, skinName); // Set player to "whitespaced" name then reload skin
+                Collection<ISRPlayer> players = plugin.getOnlinePlayers();
+                Map<String, String> skinNames = new LinkedHashMap<>();
+                for (ISRPlayer player : players) {
+                    skinNames.put(player.getName(), skinName); // Set player to "whitespaced" name then reload skin
+                }
+                plugin.getSkinStorage().setSkinOfPlayers(skinNames);
+
+                for (ISRPlayer player : players) {
                     SkinsRestorerAPI.getApi().applySkin(player.getWrapper(), skinProps);
                 }
                 sender.sendMessage("§aSuccessfully set skin of all online players to " + skin);
@@ -248,7 +257,7 @@ public interface ISRCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             if (!sender.isConsole()) {
                 sender.sendMessage(Message.ONLY_ALLOWED_ON_CONSOLE);
                 return;
@@ -267,7 +276,7 @@ public interface ISRCommand {
 
     default void onPurgeOldData(ISRCommandSender sender, int days) {
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             if (!sender.isConsole()) {
                 sender.sendMessage(Message.ONLY_ALLOWED_ON_CONSOLE);
                 return;
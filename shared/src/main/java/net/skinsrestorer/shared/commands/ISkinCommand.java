@@ -72,7 +72,7 @@ public interface ISkinCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             String senderName = sender.getName();
             if (!sender.hasPermission("skinsrestorer.bypasscooldown") && plugin.getCooldownStorage().hasCooldown(senderName)) {
                 sender.sendMessage(Message.SKIN_COOLDOWN, plugin.getCooldownStorage().getCooldownSeconds(senderName));
@@ -118,7 +118,7 @@ public interface ISkinCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             final String senderName = sender.getName();
             if (!sender.hasPermission("skinsrestorer.bypasscooldown") && plugin.getCooldownStorage().hasCooldown(senderName)) {
                 sender.sendMessage(Message.SKIN_COOLDOWN, plugin.getCooldownStorage().getCooldownSeconds(senderName));
@@ -171,7 +171,7 @@ public interface ISkinCommand {
         if (!CommandUtil.isAllowedToExecute(sender)) return;
 
         ISRPlugin plugin = getPlugin();
-        plugin.runAsync(() -> {
+        plugin.runAsync(sender, () -> {
             if (Config.PER_SKIN_PERMISSIONS && !sender.hasPermission("skinsrestorer.skin." + skin)) {
                 if (!sender.hasPermission("skinsrestorer.ownskin") && (!sender.equalsPlayer(player) || !skin.equalsIgnoreCase(sender.getName()))) {
                     sender.sendMessage(Message.PLAYER_HAS_NO_PERMISSION_SKIN);
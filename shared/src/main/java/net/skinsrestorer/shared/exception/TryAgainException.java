@@ -19,5 +19,16 @@
  */
 package net.skinsrestorer.shared.exception;
 
+import lombok.Getter;
+
+@Getter
 public class TryAgainException extends Exception {
+    /**
+     * Milliseconds to wait before trying again.
+     */
+    private final long delay;
+
+    public TryAgainException(long delay) {
+        this.delay = delay;
+    }
 }
@@ -24,12 +24,15 @@ import co.aikar.locales.LocaleManager;
 import net.skinsrestorer.shared.SkinsRestorerAPIShared;
 import net.skinsrestorer.shared.commands.ISkinCommand;
 import net.skinsrestorer.shared.exception.InitializeException;
+import net.skinsrestorer.shared.listeners.JoinStormGuard;
 import net.skinsrestorer.shared.storage.CallableValue;
+import net.skinsrestorer.shared.storage.Config;
 import net.skinsrestorer.shared.storage.CooldownStorage;
 import net.skinsrestorer.shared.storage.Message;
 import net.skinsrestorer.shared.storage.SkinStorage;
 import net.skinsrestorer.shared.utils.CommandPropertiesManager;
 import net.skinsrestorer.shared.utils.CommandReplacements;
+import net.skinsrestorer.shared.utils.SRExecutors;
 import net.skinsrestorer.shared.utils.SharedMethods;
 import net.skinsrestorer.shared.utils.connections.MojangAPI;
 import net.skinsrestorer.shared.utils.log.SRLogger;
@@ -55,7 +58,21 @@ public interface ISRPlugin {
 
     InputStream getResource(String resource);
 
-    void runAsync(Runnable runnable);
+    SRExecutors getExecutors();
+
+    JoinStormGuard getJoinStormGuard();
+
+    /**
+     * Runs the task on the storage pool of {@link #getExecutors()}, tasks are skipped while the pool is saturated.
+     *
+     * @return false if the task was skipped
+     */
+    boolean runAsync(Runnable runnable);
+
+    /**
+     * Same as {@link #runAsync(Runnable)}, but tells the sender to try again if the task was skipped.
+     */
+    void runAsync(ISRCommandSender sender, Runnable runnable);
 
     void runRepeatAsync(Runnable runnable, int delay, int interval, TimeUnit timeUnit);
 
@@ -102,6 +119,13 @@ public interface ISRPlugin {
 
         // Preload default skins
         runAsync(getSkinStorage()::preloadDefaultSkins);
+
+        // Update recently used skins before they expire, but leave the web services to joining players during a join storm
+        if (Config.SKIN_REFRESHER_ENABLED)
+            runRepeatAsync(() -> {
+                if (!getJoinStormGuard().isStorm())
+                    getExecutors().execute(SRExecutors.Pool.BACKGROUND, getSkinStorage()::refreshExpiringSkins);
+            }, Config.SKIN_REFRESHER_INTERVAL, Config.SKIN_REFRESHER_INTERVAL, TimeUnit.MINUTES);
     }
 
     CommandManager<?, ?, ?, ?, ?, ?> getManager();
@@ -0,0 +1,204 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.listeners;
+
+import lombok.RequiredArgsConstructor;
+import net.skinsrestorer.shared.storage.Config;
+import net.skinsrestorer.shared.utils.log.SRLogger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Detects join storms, e.g. all players reconnecting after a proxy restart.
+ * While more than {@link Config#JOIN_STORM_THRESHOLD} players joined within the last {@link Config#JOIN_STORM_WINDOW} seconds,
+ * joining players get their stored skin as is, and lookups that need a web request are queued on
+ * {@link Config#JOIN_STORM_MAX_LOOKUPS} threads of their own, so the storm isn't passed on to the web services
+ * and the login threads keep answering players with stored skins.
+ */
+@RequiredArgsConstructor
+public class JoinStormGuard {
+    // Players queued beyond this get the fallback right away
+    private static final int MAX_QUEUED_LOOKUPS = 1024;
+    private final SRLogger logger;
+    private final Deque<Long> logins = new ArrayDeque<>();
+    // Only used for timing, completes lookups that waited too long with the fallback
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+        Thread t = new Thread(r);
+        t.setName("SkinsRestorer-JoinStorm-Timer");
+        t.setDaemon(true);
+        return t;
+    });
+    private ThreadPoolExecutor lookupExecutor;
+    private long stormUntil;
+    private boolean storm;
+    private long timedOutLookups;
+
+    public static boolean isEnabled() {
+        return Config.JOIN_STORM_THRESHOLD > 0;
+    }
+
+    /**
+     * Counts a joining player.
+     *
+     * @return true if a join storm is going on
+     */
+    public synchronized boolean onLogin() {
+        if (!isEnabled())
+            return false;
+
+        long now = System.currentTimeMillis();
+        logins.addLast(now);
+        trim(now);
+
+        // Lasts one more window after the join rate dropped again
+        if (logins.size() > Config.JOIN_STORM_THRESHOLD)
+            stormUntil = now + TimeUnit.SECONDS.toMillis(Config.JOIN_STORM_WINDOW);
+
+        return isStorm(now);
+    }
+
+    public synchronized boolean isStorm() {
+        return isEnabled() && isStorm(System.currentTimeMillis());
+    }
+
+    /**
+     * Queues a lookup that needs a web request, without blocking the calling thread.
+     * If it doesn't finish within {@link Config#JOIN_STORM_MAX_QUEUE_TIME} seconds or the queue is full,
+     * the returned future is completed with the fallback instead. A lookup that is already running still finishes, so its result is stored for the next join.
+     *
+     * @param lookup   web lookup, run on one of the join storm threads
+     * @param fallback answer without a web request, e.g. a stored default skin
+     * @return result of the lookup or the fallback
+     */
+    public <T> CompletableFuture<T> submitLookup(Callable<T> lookup, Supplier<T> fallback) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            getLookupExecutor().execute(() -> {
+                // Timed out while queued, nobody waits for the answer anymore
+                if (future.isDone())
+                    return;
+
+                try {
+                    future.complete(lookup.call());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            completeWithFallback(future, fallback);
+            return future;
+        }
+
+        try {
+            timer.schedule(() -> completeWithFallback(future, fallback), Config.JOIN_STORM_MAX_QUEUE_TIME, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException ignored) {
+            // Shutting down, the lookup thread completes the future
+        }
+
+        return future;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+
+        synchronized (this) {
+            if (lookupExecutor != null)
+                lookupExecutor.shutdownNow();
+        }
+    }
+
+    public synchronized String getStatus() {
+        if (!isEnabled())
+            return "disabled";
+
+        long now = System.currentTimeMillis();
+        trim(now);
+
+        int runningLookups = lookupExecutor == null ? 0 : lookupExecutor.getActiveCount();
+        int queuedLookups = lookupExecutor == null ? 0 : lookupExecutor.getQueue().size();
+
+        return (isStorm(now) ? "active" : "inactive") + ", " + logins.size() + " joins in the last " + Config.JOIN_STORM_WINDOW + "s, "
+                + runningLookups + " running and " + queuedLookups + " queued lookups, " + timedOutLookups + " timed out";
+    }
+
+    private <T> void completeWithFallback(CompletableFuture<T> future, Supplier<T> fallback) {
+        if (future.isDone())
+            return;
+
+        T result;
+        try {
+            result = fallback.get();
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            return;
+        }
+
+        if (future.complete(result)) {
+            synchronized (this) {
+                timedOutLookups++;
+            }
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getLookupExecutor() {
+        // Sized by the config loaded at the first storm
+        if (lookupExecutor == null) {
+            AtomicInteger threadCount = new AtomicInteger();
+            int threads = Math.max(1, Config.JOIN_STORM_MAX_LOOKUPS);
+
+            lookupExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_QUEUED_LOOKUPS), r -> {
+                Thread t = new Thread(r);
+                t.setName("SkinsRestorer-JoinStorm-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            lookupExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return lookupExecutor;
+    }
+
+    private boolean isStorm(long now) {
+        boolean current = now < stormUntil;
+        if (current != storm) {
+            storm = current;
+
+            if (current) {
+                logger.info("Join storm detected, using stored skins and queueing skin lookups until it is over.");
+            } else {
+                logger.info("Join storm is over.");
+            }
+        }
+
+        return current;
+    }
+
+    private void trim(long now) {
+        long windowStart = now - TimeUnit.SECONDS.toMillis(Config.JOIN_STORM_WINDOW);
+        while (!logins.isEmpty() && logins.peekFirst() <= windowStart) {
+            logins.removeFirst();
+        }
+    }
+}
@@ -24,27 +24,69 @@ import net.skinsrestorer.api.property.IProperty;
 import net.skinsrestorer.api.util.Pair;
 import net.skinsrestorer.shared.interfaces.ISRPlugin;
 import net.skinsrestorer.shared.storage.Config;
+import net.skinsrestorer.shared.storage.SkinStorage;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 public abstract class SharedLoginProfileListener {
     protected boolean handleSync(SRLoginProfileEvent event) {
         return Config.DISABLE_ON_JOIN_SKINS || (Config.NO_SKIN_IF_LOGIN_CANCELED && event.isCancelled());
     }
 
-    protected Optional<IProperty> handleAsync(SRLoginProfileEvent event) throws SkinRequestException {
+    /**
+     * Looks up the skin of the joining player and applies it.
+     * During a join storm, lookups that need a web request are queued without blocking the calling thread.
+     *
+     * @param applySkin called with the skin to apply, on the thread that finished the lookup
+     * @return completes once the skin was applied or there is none, never exceptionally
+     */
+    protected CompletableFuture<Void> handleAsync(SRLoginProfileEvent event, Consumer<IProperty> applySkin) {
         ISRPlugin plugin = getPlugin();
+        SkinStorage skinStorage = plugin.getSkinStorage();
         String playerName = event.getPlayerName();
-        Pair<IProperty, Boolean> result = plugin.getSkinStorage().getDefaultSkinForPlayer(playerName);
+        CompletableFuture<Optional<Pair<IProperty, Boolean>>> result;
 
-        // Skip skin if: online mode, no custom skin set, always apply not enabled and default skins for premium not enabled
-        if (event.isOnline()
-                && !result.getRight()
-                && !Config.ALWAYS_APPLY_PREMIUM
-                && !Config.DEFAULT_SKINS_PREMIUM)
-            return Optional.empty();
+        JoinStormGuard joinStormGuard = plugin.getJoinStormGuard();
+        if (joinStormGuard.onLogin()) {
+            // Use stored skins as they are and queue players that need a web request
+            Optional<Pair<IProperty, Boolean>> stored = skinStorage.getStoredDefaultSkinForPlayer(playerName);
+            if (stored.isPresent()) {
+                result = CompletableFuture.completedFuture(stored);
+            } else {
+                result = joinStormGuard.submitLookup(() -> Optional.of(skinStorage.getDefaultSkinForPlayer(playerName)), () -> {
+                    plugin.getLogger().debug(String.format("Using a default skin for %s, too many players are joining", playerName));
+                    return skinStorage.getStoredFallbackSkin();
+                });
+            }
+        } else {
+            result = new CompletableFuture<>();
+            try {
+                result.complete(Optional.of(skinStorage.getDefaultSkinForPlayer(playerName)));
+            } catch (SkinRequestException e) {
+                result.completeExceptionally(e);
+            }
+        }
 
-        return Optional.of(result.getLeft());
+        return result.thenAccept(skin -> skin
+                // Skip skin if: online mode, no custom skin set, always apply not enabled and default skins for premium not enabled
+                .filter(pair -> !event.isOnline()
+                        || pair.getRight()
+                        || Config.ALWAYS_APPLY_PREMIUM
+                        || Config.DEFAULT_SKINS_PREMIUM)
+                .ifPresent(pair -> applySkin.accept(pair.getLeft()))
+        ).exceptionally(throwable -> {
+            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+            if (cause instanceof SkinRequestException) {
+                plugin.getLogger().debug(cause);
+            } else {
+                plugin.getLogger().severe("Could not apply the skin of " + playerName, cause);
+            }
+
+            return null;
+        });
     }
 
     protected abstract ISRPlugin getPlugin();
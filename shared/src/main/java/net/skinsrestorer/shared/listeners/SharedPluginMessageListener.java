@@ -22,13 +22,22 @@ package net.skinsrestorer.shared.listeners;
 import net.skinsrestorer.shared.interfaces.ISRPlugin;
 import net.skinsrestorer.shared.interfaces.ISRProxyPlayer;
 import net.skinsrestorer.shared.interfaces.ISRProxyPlugin;
+import net.skinsrestorer.shared.utils.PluginMessageCodec;
 
 import java.io.*;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.GZIPOutputStream;
 
 public abstract class SharedPluginMessageListener {
+    // Skins read from the storage at once while streaming a page
+    private static final int SKINS_PER_READ = 12;
+    // Uncompressed skin bytes per frame, values are base64 so the encoded frame is always smaller than this
+    private static final int FRAME_BUDGET = 24000;
+    private static final AtomicInteger SEQUENCE_IDS = new AtomicInteger();
+
     private static byte[] convertToByteArray(Map<String, String> map) {
         ByteArrayOutputStream byteOut = new ByteArrayOutputStream();
 
@@ -44,29 +53,46 @@ public abstract class SharedPluginMessageListener {
         return byteOut.toByteArray();
     }
 
-    public static void sendPage(int page, ISRPlugin plugin, ISRProxyPlayer player) {
+    public static void sendPage(int page, ISRPlugin plugin, ISRProxyPlayer player, int protocolVersion) {
         int skinNumber = 36 * page;
 
-        byte[] ba = convertToByteArray(plugin.getSkinStorage().getSkins(skinNumber));
+        if (protocolVersion >= 4) {
+            streamPage(page, plugin, player);
+            return;
+        }
+
+        Map<String, String> skins = plugin.getSkinStorage().getSkins(skinNumber);
 
         ByteArrayOutputStream b = new ByteArrayOutputStream();
         DataOutputStream out = new DataOutputStream(b);
 
         try {
-            out.writeUTF("returnSkinsV2");
-            out.writeUTF(player.getName());
-            out.writeInt(page);
+            if (protocolVersion == 3) {
+                byte[] ba = PluginMessageCodec.encodeSkinList(skins);
 
-            out.writeShort(ba.length);
-            out.write(ba);
+                out.writeUTF("returnSkinsV3");
+                out.writeUTF(player.getName());
+                out.writeInt(page);
+
+                out.writeInt(ba.length);
+                out.write(ba);
+            } else { // Servers running an older version
+                byte[] ba = convertToByteArray(skins);
+
+                out.writeUTF("returnSkinsV2");
+                out.writeUTF(player.getName());
+                out.writeInt(page);
+
+                out.writeShort(ba.length);
+                out.write(ba);
+            }
         } catch (IOException e1) {
             e1.printStackTrace();
         }
 
         byte[] data = b.toByteArray();
         plugin.getLogger().debug(String.format("Sending skins to %s (%d bytes)", player.getName(), data.length));
-        // Payload may not be larger than 32767 bytes -18 from channel name
-        if (data.length > 32749) {
+        if (data.length > PluginMessageCodec.MAX_PAYLOAD_SIZE) {
             plugin.getLogger().warning("Too many bytes GUI... canceling GUI..");
             return;
         }
@@ -74,6 +100,56 @@ public abstract class SharedPluginMessageListener {
         player.sendDataToServer("sr:messagechannel", data);
     }
 
+    /**
+     * Sends a page as returnSkinsV4 frames, each frame is sent as soon as enough skins were read from the storage.
+     * Frames stay below the plugin message limit no matter how many skins the page has.
+     */
+    private static void streamPage(int page, ISRPlugin plugin, ISRProxyPlayer player) {
+        int sequenceId = SEQUENCE_IDS.incrementAndGet();
+        Map<String, String> frame = new LinkedHashMap<>();
+        int[] frameSize = {0};
+        int[] frameIndex = {0};
+
+        plugin.getSkinStorage().streamSkins(36 * page, SKINS_PER_READ, (skinName, value) -> {
+            int entrySize = skinName.length() + value.length() + 8;
+            if (!frame.isEmpty() && frameSize[0] + entrySize > FRAME_BUDGET) {
+                sendFrame(plugin, player, page, sequenceId, frameIndex[0]++, false, frame);
+                frame.clear();
+                frameSize[0] = 0;
+            }
+
+            frame.put(skinName, value);
+            frameSize[0] += entrySize;
+        });
+
+        sendFrame(plugin, player, page, sequenceId, frameIndex[0], true, frame);
+    }
+
+    private static void sendFrame(ISRPlugin plugin, ISRProxyPlayer player, int page, int sequenceId, int frameIndex, boolean last, Map<String, String> frame) {
+        byte[] ba = PluginMessageCodec.encodeSkinList(frame);
+
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(b);
+
+        try {
+            out.writeUTF("returnSkinsV4");
+            out.writeUTF(player.getName());
+            out.writeInt(page);
+            out.writeInt(sequenceId);
+            out.writeShort(frameIndex);
+            out.writeBoolean(last);
+
+            out.writeInt(ba.length);
+            out.write(ba);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        byte[] data = b.toByteArray();
+        plugin.getLogger().debug(String.format("Sending skins frame %d to %s (%d bytes)", frameIndex, player.getName(), data.length));
+        player.sendDataToServer("sr:messagechannel", data);
+    }
+
     public void handlePluginMessage(SRPluginMessageEvent event) {
         ISRProxyPlugin plugin = getPlugin();
 
@@ -105,7 +181,9 @@ public abstract class SharedPluginMessageListener {
                     int page = in.readInt();
                     if (page > 999)
                         page = 999;
-                    sendPage(page, plugin, player);
+                    // Older servers do not send their protocol version
+                    int protocolVersion = in.available() > 0 ? in.readUnsignedByte() : 2;
+                    sendPage(page, plugin, player, Math.min(protocolVersion, PluginMessageCodec.PROTOCOL_VERSION));
                     break;
                 case "clearSkin":
                     plugin.getSkinCommand().onSkinClearOther(player, player);
@@ -23,6 +23,7 @@ import lombok.Getter;
 import net.skinsrestorer.api.property.GenericProperty;
 import net.skinsrestorer.shared.interfaces.ISRLogger;
 import net.skinsrestorer.shared.interfaces.ISRServerPlugin;
+import net.skinsrestorer.shared.utils.PluginMessageCodec;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -58,6 +59,9 @@ public abstract class SkinsRestorerServerShared extends SkinsRestorerShared impl
         }
     }
 
+    /**
+     * Method of converting SkinGUI plugin message data sent by proxies without {@link PluginMessageCodec} support to a map.
+     */
     @SuppressWarnings("unchecked")
     protected static Map<String, String> convertToObjectV2(byte[] byteArr) {
         try {
@@ -69,4 +73,13 @@ public abstract class SkinsRestorerServerShared extends SkinsRestorerShared impl
             return Collections.emptyMap();
         }
     }
+
+    protected static Map<String, String> convertToObjectV3(byte[] byteArr) {
+        try {
+            return PluginMessageCodec.decodeSkinList(byteArr);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return Collections.emptyMap();
+        }
+    }
 }
@@ -23,16 +23,22 @@ import co.aikar.commands.CommandManager;
 import co.aikar.locales.LocaleManager;
 import lombok.Getter;
 import net.skinsrestorer.shared.SkinsRestorerAPIShared;
+import net.skinsrestorer.shared.interfaces.ISRCommandSender;
 import net.skinsrestorer.shared.interfaces.ISRForeign;
 import net.skinsrestorer.shared.interfaces.ISRLogger;
 import net.skinsrestorer.shared.interfaces.ISRPlugin;
+import net.skinsrestorer.shared.listeners.JoinStormGuard;
 import net.skinsrestorer.shared.storage.CooldownStorage;
+import net.skinsrestorer.shared.storage.Message;
 import net.skinsrestorer.shared.storage.SkinStorage;
 import net.skinsrestorer.shared.update.UpdateChecker;
 import net.skinsrestorer.shared.update.UpdateCheckerGitHub;
 import net.skinsrestorer.shared.utils.MetricsCounter;
+import net.skinsrestorer.shared.utils.SRExecutors;
+import net.skinsrestorer.shared.utils.connections.HttpClient;
 import net.skinsrestorer.shared.utils.connections.MineSkinAPI;
 import net.skinsrestorer.shared.utils.connections.MojangAPI;
+import net.skinsrestorer.shared.utils.connections.RateLimiter;
 import net.skinsrestorer.shared.utils.log.SRLogger;
 import org.inventivetalent.update.spiget.UpdateCallback;
 
@@ -43,8 +49,12 @@ import java.util.concurrent.TimeUnit;
 @Getter
 public abstract class SkinsRestorerShared implements ISRPlugin {
     protected final MetricsCounter metricsCounter = new MetricsCounter();
+    protected final HttpClient httpClient = new HttpClient("SkinsRestorer");
+    protected final RateLimiter rateLimiter = new RateLimiter();
     protected final CooldownStorage cooldownStorage = new CooldownStorage();
     protected final SRLogger logger;
+    protected final SRExecutors executors;
+    protected final JoinStormGuard joinStormGuard;
     protected final MojangAPI mojangAPI;
     protected final MineSkinAPI mineSkinAPI;
     protected final SkinStorage skinStorage;
@@ -57,12 +67,14 @@ public abstract class SkinsRestorerShared implements ISRPlugin {
 
     protected SkinsRestorerShared(ISRLogger isrLogger, boolean loggerColor, String version, String updateCheckerAgent, Path dataFolder) {
         this.logger = new SRLogger(isrLogger, loggerColor);
-        this.mojangAPI = new MojangAPI(metricsCounter);
-        this.mineSkinAPI = new MineSkinAPI(logger, metricsCounter);
-        this.skinStorage = new SkinStorage(logger, mojangAPI, mineSkinAPI);
+        this.executors = new SRExecutors(logger);
+        this.joinStormGuard = new JoinStormGuard(logger);
+        this.mojangAPI = new MojangAPI(metricsCounter, httpClient, rateLimiter, executors);
+        this.mineSkinAPI = new MineSkinAPI(logger, metricsCounter, httpClient, rateLimiter, executors);
+        this.skinStorage = new SkinStorage(logger, mojangAPI, mineSkinAPI, executors);
         this.localeManager = LocaleManager.create(ISRForeign::getLocale, Locale.ENGLISH);
         this.version = version;
-        this.updateChecker = new UpdateCheckerGitHub(2124, version, logger, updateCheckerAgent);
+        this.updateChecker = new UpdateCheckerGitHub(2124, version, logger, updateCheckerAgent, httpClient);
         this.dataFolder = dataFolder;
     }
 
@@ -80,8 +92,29 @@ public abstract class SkinsRestorerShared implements ISRPlugin {
 
     protected abstract boolean isProxyMode();
 
+    @Override
+    public boolean runAsync(Runnable runnable) {
+        return executors.execute(SRExecutors.Pool.STORAGE, runnable);
+    }
+
+    @Override
+    public void runAsync(ISRCommandSender sender, Runnable runnable) {
+        if (!runAsync(runnable))
+            sender.sendMessage(Message.SERVER_BUSY);
+    }
+
+    /**
+     * Stops the thread pools and schedulers of SkinsRestorer, called when the plugin is disabled.
+     */
+    public void pluginShutdown() {
+        executors.shutdown();
+        joinStormGuard.shutdown();
+        mineSkinAPI.shutdown();
+        mojangAPI.shutdown();
+    }
+
     public void checkUpdate(boolean showUpToDate) {
-        runAsync(() -> updateChecker.checkForUpdate(new UpdateCallback() {
+        executors.execute(SRExecutors.Pool.BACKGROUND, () -> updateChecker.checkForUpdate(new UpdateCallback() {
             @Override
             public void updateAvailable(String newVersion, String downloadUrl, boolean hasDirectDownload) {
                 outdated = true;
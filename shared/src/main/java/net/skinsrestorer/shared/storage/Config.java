@@ -47,6 +47,42 @@ public class Config {
     public static List<String> CUSTOM_GUI_SKINS;
     public static boolean PER_SKIN_PERMISSIONS;
     public static int SKIN_EXPIRES_AFTER;
+    public static int LOGIN_LATENCY_BUDGET;
+    public static boolean SKIN_REFRESHER_ENABLED;
+    public static int SKIN_REFRESHER_INTERVAL;
+    public static int SKIN_REFRESHER_BATCH_SIZE;
+    public static int SKIN_REFRESHER_REFRESH_AHEAD;
+    public static int SKIN_REFRESHER_TRACKED_SKINS;
+    public static int JOIN_STORM_THRESHOLD;
+    public static int JOIN_STORM_WINDOW;
+    public static int JOIN_STORM_MAX_LOOKUPS;
+    public static int JOIN_STORM_MAX_QUEUE_TIME;
+    public static int CACHE_SKIN_DATA_MAX_SIZE;
+    public static int CACHE_SKIN_DATA_EXPIRE_AFTER;
+    public static int CACHE_PLAYER_SKIN_MAX_SIZE;
+    public static int CACHE_PLAYER_SKIN_EXPIRE_AFTER;
+    public static int CACHE_PREMIUM_STATUS_MAX_SIZE;
+    public static int CACHE_PREMIUM_STATUS_EXPIRE_AFTER;
+    public static int PREMIUM_STATUS_EXPIRE_AFTER;
+    public static int PREMIUM_STATUS_NOT_PREMIUM_EXPIRE_AFTER;
+    public static boolean HEDGED_LOOKUPS_ENABLED;
+    public static int HEDGED_LOOKUPS_DELAY;
+    public static int RATE_LIMIT_MOJANG;
+    public static int RATE_LIMIT_ASHCON;
+    public static int RATE_LIMIT_MINETOOLS;
+    public static int RATE_LIMIT_MINESKIN;
+    public static int RATE_LIMIT_MAX_WAIT_TIME;
+    public static boolean EXECUTORS_VIRTUAL_THREADS;
+    public static int EXECUTORS_LOGIN_THREADS;
+    public static int EXECUTORS_LOGIN_QUEUE;
+    public static int EXECUTORS_STORAGE_THREADS;
+    public static int EXECUTORS_STORAGE_QUEUE;
+    public static int EXECUTORS_LOOKUP_THREADS;
+    public static int EXECUTORS_LOOKUP_QUEUE;
+    public static int EXECUTORS_MINESKIN_THREADS;
+    public static int EXECUTORS_MINESKIN_QUEUE;
+    public static int EXECUTORS_BACKGROUND_THREADS;
+    public static int EXECUTORS_BACKGROUND_QUEUE;
     public static boolean FORWARD_TEXTURES;
     public static boolean MYSQL_ENABLED;
     public static String MYSQL_HOST;
@@ -57,12 +93,16 @@ public class Config {
     public static int MYSQL_MAX_POOL_SIZE;
     public static String MYSQL_SKIN_TABLE;
     public static String MYSQL_PLAYER_TABLE;
+    public static String MYSQL_PREMIUM_TABLE;
+    public static String MYSQL_GENERATED_SKIN_TABLE;
     public static String MYSQL_CONNECTION_OPTIONS;
     public static boolean NO_SKIN_IF_LOGIN_CANCELED;
     public static boolean ALWAYS_APPLY_PREMIUM;
     public static boolean RESTRICT_SKIN_URLS_ENABLED;
     public static List<String> RESTRICT_SKIN_URLS_LIST;
     public static String MINESKIN_API_KEY;
+    public static boolean MINESKIN_HASH_IMAGES;
+    public static int MINESKIN_URL_CACHE_EXPIRES_AFTER;
     public static boolean RESOURCE_PACK_FIX;
     public static boolean DISMOUNT_PLAYER_ON_UPDATE;
     public static boolean REMOUNT_PLAYER_ON_UPDATE;
@@ -96,6 +136,42 @@ public class Config {
         CUSTOM_GUI_SKINS = config.getStringList("CustomGUI.Names");
         PER_SKIN_PERMISSIONS = config.getBoolean("PerSkinPermissions");
         SKIN_EXPIRES_AFTER = config.getInt("SkinExpiresAfter");
+        LOGIN_LATENCY_BUDGET = config.getInt("LoginLatencyBudget");
+        SKIN_REFRESHER_ENABLED = config.getBoolean("SkinRefresher.Enabled");
+        SKIN_REFRESHER_INTERVAL = config.getInt("SkinRefresher.Interval");
+        SKIN_REFRESHER_BATCH_SIZE = config.getInt("SkinRefresher.BatchSize");
+        SKIN_REFRESHER_REFRESH_AHEAD = config.getInt("SkinRefresher.RefreshAhead");
+        SKIN_REFRESHER_TRACKED_SKINS = config.getInt("SkinRefresher.TrackedSkins");
+        JOIN_STORM_THRESHOLD = config.getInt("JoinStorm.Threshold");
+        JOIN_STORM_WINDOW = config.getInt("JoinStorm.Window");
+        JOIN_STORM_MAX_LOOKUPS = config.getInt("JoinStorm.MaxLookups");
+        JOIN_STORM_MAX_QUEUE_TIME = config.getInt("JoinStorm.MaxQueueTime");
+        CACHE_SKIN_DATA_MAX_SIZE = config.getInt("Cache.SkinData.MaxSize");
+        CACHE_SKIN_DATA_EXPIRE_AFTER = config.getInt("Cache.SkinData.ExpireAfter");
+        CACHE_PLAYER_SKIN_MAX_SIZE = config.getInt("Cache.PlayerSkin.MaxSize");
+        CACHE_PLAYER_SKIN_EXPIRE_AFTER = config.getInt("Cache.PlayerSkin.ExpireAfter");
+        CACHE_PREMIUM_STATUS_MAX_SIZE = config.getInt("Cache.PremiumStatus.MaxSize");
+        CACHE_PREMIUM_STATUS_EXPIRE_AFTER = config.getInt("Cache.PremiumStatus.ExpireAfter");
+        PREMIUM_STATUS_EXPIRE_AFTER = config.getInt("PremiumStatus.ExpireAfter");
+        PREMIUM_STATUS_NOT_PREMIUM_EXPIRE_AFTER = config.getInt("PremiumStatus.NotPremiumExpireAfter");
+        HEDGED_LOOKUPS_ENABLED = config.getBoolean("HedgedLookups.Enabled");
+        HEDGED_LOOKUPS_DELAY = config.getInt("HedgedLookups.Delay");
+        RATE_LIMIT_MOJANG = config.getInt("RateLimits.Mojang");
+        RATE_LIMIT_ASHCON = config.getInt("RateLimits.Ashcon");
+        RATE_LIMIT_MINETOOLS = config.getInt("RateLimits.Minetools");
+        RATE_LIMIT_MINESKIN = config.getInt("RateLimits.MineSkin");
+        RATE_LIMIT_MAX_WAIT_TIME = config.getInt("RateLimits.MaxWaitTime");
+        EXECUTORS_VIRTUAL_THREADS = config.getBoolean("Executors.VirtualThreads");
+        EXECUTORS_LOGIN_THREADS = config.getInt("Executors.Login.Threads");
+        EXECUTORS_LOGIN_QUEUE = config.getInt("Executors.Login.Queue");
+        EXECUTORS_STORAGE_THREADS = config.getInt("Executors.Storage.Threads");
+        EXECUTORS_STORAGE_QUEUE = config.getInt("Executors.Storage.Queue");
+        EXECUTORS_LOOKUP_THREADS = config.getInt("Executors.Lookup.Threads");
+        EXECUTORS_LOOKUP_QUEUE = config.getInt("Executors.Lookup.Queue");
+        EXECUTORS_MINESKIN_THREADS = config.getInt("Executors.MineSkin.Threads");
+        EXECUTORS_MINESKIN_QUEUE = config.getInt("Executors.MineSkin.Queue");
+        EXECUTORS_BACKGROUND_THREADS = config.getInt("Executors.Background.Threads");
+        EXECUTORS_BACKGROUND_QUEUE = config.getInt("Executors.Background.Queue");
         FORWARD_TEXTURES = config.getBoolean("ForwardTextures");
         MYSQL_ENABLED = config.getBoolean("MySQL.Enabled");
         MYSQL_HOST = config.getString("MySQL.Host");
@@ -106,6 +182,8 @@ public class Config {
         MYSQL_MAX_POOL_SIZE = config.getInt("MySQL.MaxPoolSize");
         MYSQL_SKIN_TABLE = config.getString("MySQL.SkinTable");
         MYSQL_PLAYER_TABLE = config.getString("MySQL.PlayerTable");
+        MYSQL_PREMIUM_TABLE = config.getString("MySQL.PremiumTable");
+        MYSQL_GENERATED_SKIN_TABLE = config.getString("MySQL.GeneratedSkinTable");
         MYSQL_CONNECTION_OPTIONS = config.getString("MySQL.ConnectionOptions");
         DISABLE_ON_JOIN_SKINS = config.getBoolean("DisableOnJoinSkins");
         DISALLOW_AUTO_UPDATE_SKIN = config.getBoolean("DisallowAutoUpdateSkin"); //Note: incorrect name because of default value mistake!
@@ -114,6 +192,8 @@ public class Config {
         RESTRICT_SKIN_URLS_ENABLED = config.getBoolean("RestrictSkinUrls.Enabled");
         RESTRICT_SKIN_URLS_LIST = config.getStringList("RestrictSkinUrls.List");
         MINESKIN_API_KEY = config.getString("MineskinAPIKey");
+        MINESKIN_HASH_IMAGES = config.getBoolean("MineskinHashImages");
+        MINESKIN_URL_CACHE_EXPIRES_AFTER = config.getInt("MineskinUrlCacheExpiresAfter");
         RESOURCE_PACK_FIX = config.getBoolean("ResourcePackFix");
         DISMOUNT_PLAYER_ON_UPDATE = config.getBoolean("DismountPlayerOnSkinUpdate");
         REMOUNT_PLAYER_ON_UPDATE = config.getBoolean("RemountPlayerOnSkinUpdate");
@@ -141,6 +221,11 @@ public class Config {
         if (!CUSTOM_GUI_ENABLED)
             CUSTOM_GUI_ONLY = false;
 
+        if (SKIN_REFRESHER_ENABLED && SKIN_REFRESHER_INTERVAL <= 0) {
+            logger.warning("[Config] SkinRefresher.Interval must be at least 1! Disabling SkinRefresher.");
+            SKIN_REFRESHER_ENABLED = false;
+        }
+
         if (!DISMOUNT_PLAYER_ON_UPDATE)
             REMOUNT_PLAYER_ON_UPDATE = false;
 
@@ -91,6 +91,7 @@ public enum Message implements MessageKeyGetter {
     ERROR_MS_GENERIC,
     GENERIC_ERROR,
     WAIT_A_MINUTE,
+    SERVER_BUSY,
     ERROR_NO_SKIN,
     SKINSMENU_OPEN,
     SKINSMENU_TITLE_NEW,
@@ -28,9 +28,18 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RequiredArgsConstructor
 public class MySQL {
+    private static final int MAX_BATCH_SIZE = 500;
+    private static final int MIGRATION_CHUNK_SIZE = 5000;
+    private static final String TIMESTAMP_INDEX = "idx_timestamp";
+    // Shared by all instances, /sr reload connects again while the migration may still be running
+    private static final AtomicBoolean TIMESTAMP_MIGRATION_RUNNING = new AtomicBoolean();
     private final SRLogger logger;
     private final String host;
     private final int port;
@@ -51,11 +60,35 @@ public class MySQL {
                 + "`Nick` varchar(19) COLLATE utf8_unicode_ci NOT NULL,"
                 + "`Value` text COLLATE utf8_unicode_ci,"
                 + "`Signature` text COLLATE utf8_unicode_ci,"
-                + "`timestamp` text COLLATE utf8_unicode_ci,"
+                + "`timestamp` bigint NOT NULL DEFAULT 0,"
+                + "PRIMARY KEY (`Nick`),"
+                + "KEY `" + TIMESTAMP_INDEX + "` (`timestamp`)) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci");
+
+        execute("CREATE TABLE IF NOT EXISTS `" + Config.MYSQL_PREMIUM_TABLE + "` ("
+                + "`Nick` varchar(17) COLLATE utf8_unicode_ci NOT NULL,"
+                + "`UUID` varchar(32) COLLATE utf8_unicode_ci DEFAULT NULL,"
+                + "`timestamp` bigint NOT NULL DEFAULT 0,"
                 + "PRIMARY KEY (`Nick`)) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci");
 
+        execute("CREATE TABLE IF NOT EXISTS `" + Config.MYSQL_GENERATED_SKIN_TABLE + "` ("
+                + "`Hash` char(64) COLLATE utf8_unicode_ci NOT NULL,"
+                + "`Value` text COLLATE utf8_unicode_ci,"
+                + "`Signature` text COLLATE utf8_unicode_ci,"
+                + "`timestamp` bigint NOT NULL DEFAULT 0,"
+                + "PRIMARY KEY (`Hash`)) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE=utf8_unicode_ci");
+
         if (!columnExists(Config.MYSQL_SKIN_TABLE, "timestamp")) {
-            execute("ALTER TABLE `" + Config.MYSQL_SKIN_TABLE + "` ADD `timestamp` text COLLATE utf8_unicode_ci;");
+            execute("ALTER TABLE `" + Config.MYSQL_SKIN_TABLE + "` ADD `timestamp` bigint NOT NULL DEFAULT 0;");
+        }
+
+        String timestampType = columnDataType(Config.MYSQL_SKIN_TABLE, "timestamp");
+        if (timestampType != null) {
+            // The index is only added once the column is bigint, indexing the text column would be wasted work
+            if (timestampType.equalsIgnoreCase("bigint") && !columnExists(Config.MYSQL_SKIN_TABLE, "timestamp_old")) {
+                addTimestampIndex();
+            } else {
+                startTimestampMigration();
+            }
         }
 
         if (columnVarCharLength(Config.MYSQL_PLAYER_TABLE, "Nick") < 17) {
@@ -71,6 +104,116 @@ public class MySQL {
         }
     }
 
+    private void startTimestampMigration() {
+        if (!TIMESTAMP_MIGRATION_RUNNING.compareAndSet(false, true))
+            return;
+
+        // Copying big tables takes a while, the skin table stays usable meanwhile
+        Thread thread = new Thread(() -> {
+            try {
+                migrateTimestampColumn();
+            } finally {
+                TIMESTAMP_MIGRATION_RUNNING.set(false);
+            }
+        }, "SkinsRestorer-MySQL-Migration");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void addTimestampIndex() {
+        if (!indexExists(Config.MYSQL_SKIN_TABLE, TIMESTAMP_INDEX)) {
+            execute("ALTER TABLE `" + Config.MYSQL_SKIN_TABLE + "` ADD INDEX `" + TIMESTAMP_INDEX + "` (`timestamp`), ALGORITHM=INPLACE, LOCK=NONE");
+        }
+    }
+
+    /**
+     * Older versions stored the skin timestamp as text, which made every purge a full table scan.
+     * Runs in the background without locking the table, every step can be resumed after a restart:
+     * <ol>
+     *     <li>The text column is copied into a new bigint column {@code timestamp_new} in small chunks.</li>
+     *     <li>Both columns are renamed at once, the text column is kept as {@code timestamp_old}.</li>
+     *     <li>Skins written between their chunk being copied and the rename only have a newer text timestamp,
+     *     they are caught up in chunks again. Skins written after the rename already have a newer bigint timestamp.</li>
+     *     <li>The text column is dropped and the timestamp index is added.</li>
+     * </ol>
+     */
+    private void migrateTimestampColumn() {
+        String table = Config.MYSQL_SKIN_TABLE;
+
+        logger.info("Migrating timestamp column of " + table + " to bigint in the background, this may take a while on big tables...");
+
+        try {
+            if (!columnExists(table, "timestamp_old")) {
+                if (!columnExists(table, "timestamp_new")) {
+                    executeUpdate("ALTER TABLE `" + table + "` ADD `timestamp_new` bigint NOT NULL DEFAULT 0, ALGORITHM=INPLACE, LOCK=NONE");
+                }
+
+                forEachChunk(table, (lastNick, chunkEnd) -> executeUpdate("UPDATE `" + table + "` SET `timestamp_new` = " + timestampConversion("timestamp")
+                        + " WHERE Nick > ? AND Nick <= ?", lastNick, chunkEnd));
+
+                // Inserts after the rename don't set the text column anymore, so it has to allow null
+                String oldColumnType = queryFirst("SELECT COLUMN_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?",
+                        rs -> rs.getString("COLUMN_TYPE"), table, "timestamp").orElseThrow(() -> new SQLException("timestamp column of " + table + " is missing"));
+                executeUpdate("ALTER TABLE `" + table + "` CHANGE `timestamp` `timestamp_old` " + oldColumnType + " NULL,"
+                        + " CHANGE `timestamp_new` `timestamp` bigint NOT NULL DEFAULT 0, ALGORITHM=INPLACE, LOCK=NONE");
+            }
+
+            // Timestamps are the time of the write, so only text timestamps newer than the bigint are missing
+            forEachChunk(table, (lastNick, chunkEnd) -> executeUpdate("UPDATE `" + table + "` SET `timestamp` = " + timestampConversion("timestamp_old")
+                    + " WHERE Nick > ? AND Nick <= ? AND " + timestampConversion("timestamp_old") + " > `timestamp`", lastNick, chunkEnd));
+
+            executeUpdate("ALTER TABLE `" + table + "` DROP COLUMN `timestamp_old`, ALGORITHM=INPLACE, LOCK=NONE");
+            addTimestampIndex();
+
+            logger.info("Finished migrating timestamp column of " + table + ".");
+        } catch (SQLException e) {
+            logger.severe("Error migrating timestamp column of " + table + ", will retry on next start", e);
+        }
+    }
+
+    /**
+     * Seeks over the primary key in chunks of {@link #MIGRATION_CHUNK_SIZE} skins,
+     * instead of updating the whole table in one statement that locks all of its rows.
+     */
+    private void forEachChunk(String table, ChunkUpdate update) throws SQLException {
+        String lastNick = "";
+        while (true) {
+            List<String> chunk = query("SELECT Nick FROM `" + table + "` WHERE Nick > ? ORDER BY Nick LIMIT " + MIGRATION_CHUNK_SIZE,
+                    rs -> rs.getString("Nick"), lastNick);
+
+            if (chunk.isEmpty())
+                break;
+
+            String chunkEnd = chunk.get(chunk.size() - 1);
+            update.apply(lastNick, chunkEnd);
+            lastNick = chunkEnd;
+        }
+    }
+
+    private static String timestampConversion(String column) {
+        return "IF(`" + column + "` REGEXP '^[0-9]+$', CAST(`" + column + "` AS SIGNED), 0)";
+    }
+
+    private String columnDataType(String tableName, String columnName) {
+        try {
+            return queryFirst("SELECT DATA_TYPE FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?",
+                    rs -> rs.getString("DATA_TYPE"), tableName, columnName).orElse(null);
+        } catch (SQLException e) {
+            logger.severe("Error checking column type", e);
+            return null;
+        }
+    }
+
+    private boolean indexExists(String tableName, String indexName) {
+        try {
+            return queryFirst("SELECT COUNT(*) FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?",
+                    rs -> rs.getInt(1), tableName, indexName).orElse(0) > 0;
+        } catch (SQLException e) {
+            logger.severe("Error checking if index exists", e);
+            return false;
+        }
+    }
+
     private boolean columnExists(String tableName, String columnName) {
         try (Connection connection = poolDataSource.getConnection();
              PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = ? AND COLUMN_NAME = ?")) {
@@ -106,10 +249,19 @@ public class MySQL {
         poolDataSource.setUrl("jdbc:mysql://" + host + ":" + port + "/" + database +
                 "?permitMysqlScheme" +
                 "&maxPoolSize=" + maxPoolSize +
+                // Cache prepared statements per connection and send batches as bulk statements
+                defaultOption("useServerPrepStmts", "true") +
+                defaultOption("cachePrepStmts", "true") +
+                defaultOption("useBulkStmts", "true") +
                 "&" + options
         );
     }
 
+    private String defaultOption(String key, String value) {
+        // Options from the config always win
+        return options.contains(key + "=") ? "" : "&" + key + "=" + value;
+    }
+
     public void execute(@Language("sql") final String query, final Object... vars) {
         try (Connection connection = poolDataSource.getConnection()) {
             try (PreparedStatement ps = connection.prepareStatement(query)) {
@@ -126,16 +278,103 @@ public class MySQL {
         }
     }
 
-    public ResultSet query(@Language("sql") final String query, final Object... vars) throws SQLException {
+    /**
+     * Same as {@link #execute(String, Object...)}, but returns the affected row count and leaves error handling to the caller.
+     */
+    public int executeUpdate(@Language("sql") final String query, final Object... vars) throws SQLException {
+        try (Connection connection = poolDataSource.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement(query)) {
+                fillPreparedStatement(ps, vars);
+
+                return ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Executes the same statement for every row of variables in one transaction,
+     * sending the rows to the server in JDBC batches instead of one round trip per row.
+     *
+     * @param query sql statement
+     * @param batch prepared statement variables, one array per row
+     */
+    public void executeBatch(@Language("sql") final String query, final List<Object[]> batch) {
+        if (batch.isEmpty())
+            return;
+
+        try (Connection connection = poolDataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement ps = connection.prepareStatement(query)) {
+                int pending = 0;
+                for (Object[] vars : batch) {
+                    fillPreparedStatement(ps, vars);
+                    ps.addBatch();
+
+                    if (++pending >= MAX_BATCH_SIZE) {
+                        ps.executeBatch();
+                        pending = 0;
+                    }
+                }
+
+                if (pending > 0)
+                    ps.executeBatch();
+
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            logger.warning("MySQL error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a query and maps every row while the connection is still open.
+     * The returned list is fully materialised and safe to use after the connection was released.
+     *
+     * @param query  sql query
+     * @param mapper maps the current row of the result set to a value object
+     * @param vars   prepared statement variables
+     * @return mapped rows, empty if the query returned no rows
+     */
+    public <T> List<T> query(@Language("sql") final String query, final RowMapper<T> mapper, final Object... vars) throws SQLException {
         try (Connection connection = poolDataSource.getConnection()) {
             try (PreparedStatement ps = connection.prepareStatement(query)) {
                 fillPreparedStatement(ps, vars);
 
-                ResultSet rs = ps.executeQuery();
-                if (rs.next()) {
-                    return rs;
-                } else {
-                    return null;
+                try (ResultSet rs = ps.executeQuery()) {
+                    List<T> rows = new ArrayList<>();
+                    while (rs.next()) {
+                        rows.add(mapper.map(rs));
+                    }
+
+                    return rows;
+                }
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #query(String, RowMapper, Object...)} but only maps the first row.
+     */
+    public <T> Optional<T> queryFirst(@Language("sql") final String query, final RowMapper<T> mapper, final Object... vars) throws SQLException {
+        try (Connection connection = poolDataSource.getConnection()) {
+            try (PreparedStatement ps = connection.prepareStatement(query)) {
+                fillPreparedStatement(ps, vars);
+                ps.setMaxRows(1);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return Optional.ofNullable(mapper.map(rs));
+                    } else {
+                        return Optional.empty();
+                    }
                 }
             }
         }
@@ -152,4 +391,14 @@ public class MySQL {
             }
         }
     }
+
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet resultSet) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface ChunkUpdate {
+        void apply(String lastNick, String chunkEnd) throws SQLException;
+    }
 }
@@ -19,8 +19,8 @@
  */
 package net.skinsrestorer.shared.storage;
 
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Setter;
 import net.skinsrestorer.api.SkinsRestorerAPI;
 import net.skinsrestorer.api.exception.NotPremiumException;
 import net.skinsrestorer.api.exception.SkinRequestException;
@@ -30,37 +30,83 @@ import net.skinsrestorer.api.util.Pair;
 import net.skinsrestorer.shared.exception.SkinRequestExceptionShared;
 import net.skinsrestorer.shared.storage.adapter.StorageAdapter;
 import net.skinsrestorer.shared.utils.C;
+import net.skinsrestorer.shared.utils.SRExecutors;
+import net.skinsrestorer.shared.utils.connections.InFlightRequests;
 import net.skinsrestorer.shared.utils.connections.MineSkinAPI;
 import net.skinsrestorer.shared.utils.connections.MojangAPI;
 import net.skinsrestorer.shared.utils.log.SRLogger;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 public class SkinStorage implements ISkinStorage {
+    private static final int SKINS_PER_PAGE = 36;
+    // Skin names read at once when skipping to a page without a cursor
+    private static final int SKIP_BATCH_SIZE = 1000;
     private final SRLogger logger;
     private final MojangAPI mojangAPI;
     private final MineSkinAPI mineSkinAPI;
-    @Setter
+    private final SRExecutors executors;
+    private final InFlightRequests<String, IProperty> fetchRequests = new InFlightRequests<>();
+    // Running background updates of outdated skins, by lowercase skin name
+    private final Map<String, CompletableFuture<Optional<IProperty>>> skinRefreshes = new ConcurrentHashMap<>();
+    // Recently used skins -> time of last use, least recently used first, updated by the skin refresher before they expire
+    private final Map<String, Long> recentlyUsedSkins = new LinkedHashMap<String, Long>(16, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > Config.SKIN_REFRESHER_TRACKED_SKINS;
+        }
+    };
+    // Offset into the skin list -> name of the skin right before it, used to seek to GUI pages
+    private final TreeMap<Integer, String> pageCursors = new TreeMap<>();
+    // Bumped whenever a skin name is added or removed, lets GUI implementations know when their cached pages are outdated
+    private final AtomicLong skinListVersion = new AtomicLong();
+    // Notified with the lowercase skin name when the value of an already stored skin was overwritten
+    private final List<Consumer<String>> skinChangeListeners = new CopyOnWriteArrayList<>();
     private StorageAdapter storageAdapter;
+    @Getter
+    private volatile TimedCache<String, StorageAdapter.StoredProperty> skinDataCache = new TimedCache<>(0, 0, TimeUnit.SECONDS);
+    @Getter
+    private volatile TimedCache<String, Optional<String>> playerSkinCache = new TimedCache<>(0, 0, TimeUnit.SECONDS);
+    private volatile TimedCache<String, StorageAdapter.StoredPremiumStatus> premiumStatusCache = new TimedCache<>(0, 0, TimeUnit.SECONDS);
+
+    public void setStorageAdapter(StorageAdapter storageAdapter) {
+        this.storageAdapter = storageAdapter;
+        this.mineSkinAPI.setStorageAdapter(storageAdapter);
+        reloadCaches();
+    }
+
+    /**
+     * Recreates the caches with the sizes and expire times of the loaded config, e.g. after /sr reload.
+     * Cached entries are dropped, they are read from the storage again on next use.
+     */
+    public void reloadCaches() {
+        this.skinDataCache = new TimedCache<>(Config.CACHE_SKIN_DATA_MAX_SIZE, Config.CACHE_SKIN_DATA_EXPIRE_AFTER, TimeUnit.SECONDS);
+        this.playerSkinCache = new TimedCache<>(Config.CACHE_PLAYER_SKIN_MAX_SIZE, Config.CACHE_PLAYER_SKIN_EXPIRE_AFTER, TimeUnit.SECONDS);
+        this.premiumStatusCache = new TimedCache<>(Config.CACHE_PREMIUM_STATUS_MAX_SIZE, Config.CACHE_PREMIUM_STATUS_EXPIRE_AFTER, TimeUnit.SECONDS);
+    }
 
     public void preloadDefaultSkins() {
         if (!Config.DEFAULT_SKINS_ENABLED)
             return;
 
         List<String> toRemove = new ArrayList<>();
+        // Skins missing from the storage are written at once after all of them were fetched
+        Map<String, StorageAdapter.StoredProperty> fetched = new LinkedHashMap<>();
         Config.DEFAULT_SKINS.forEach(skin -> {
             // TODO: add try for skinUrl
             try {
-                if (!C.validUrl(skin)) {
-                    fetchSkinData(skin);
+                if (!C.validUrl(skin) && !getSkinData(skin, true).isPresent()) {
+                    IProperty textures = mojangAPI.getSkin(skin).orElseThrow(() -> new SkinRequestExceptionShared(Message.ERROR_NO_SKIN));
+                    if (!textures.getValue().isEmpty() && !textures.getSignature().isEmpty())
+                        fetched.put(skin.toLowerCase(), new StorageAdapter.StoredProperty(textures.getValue(), textures.getSignature(), System.currentTimeMillis()));
                 }
             } catch (SkinRequestException e) {
                 // removing skin from list
@@ -72,6 +118,12 @@ public class SkinStorage implements ISkinStorage {
         });
         Config.DEFAULT_SKINS.removeAll(toRemove);
 
+        if (!fetched.isEmpty()) {
+            storageAdapter.setStoredSkinData(fetched);
+            fetched.forEach(skinDataCache::put);
+            clearPageCursors();
+        }
+
         if (Config.DEFAULT_SKINS.isEmpty()) {
             logger.warning("[WARNING] No more working DefaultSkin left... disabling feature");
             Config.DEFAULT_SKINS_ENABLED = false;
@@ -90,8 +142,45 @@ public class SkinStorage implements ISkinStorage {
         }
     }
 
+    /**
+     * Same as {@link #getDefaultSkinForPlayer(String)}, but only uses stored data and doesn't update outdated skins.
+     *
+     * @param playerName Player name
+     * @return empty if the skin can only be found with a web request
+     */
+    public Optional<Pair<IProperty, Boolean>> getStoredDefaultSkinForPlayer(String playerName) {
+        Optional<Pair<String, Boolean>> result = getDefaultSkinName(playerName, false, true);
+        if (!result.isPresent() || C.validUrl(result.get().getLeft()))
+            return Optional.empty();
+
+        return getSkinData(result.get().getLeft(), false).map(property -> Pair.of(property, result.get().getRight()));
+    }
+
+    /**
+     * Picks one of the stored default skins, for players whose own skin can't be looked up in time.
+     *
+     * @return empty if default skins are disabled or none of them is stored
+     */
+    public Optional<Pair<IProperty, Boolean>> getStoredFallbackSkin() {
+        if (!Config.DEFAULT_SKINS_ENABLED)
+            return Optional.empty();
+
+        // Url skins are generated on first use, only skins by name are stored by preloadDefaultSkins
+        List<String> skins = Config.DEFAULT_SKINS.stream().filter(skin -> !C.validUrl(skin)).collect(Collectors.toList());
+        if (skins.isEmpty())
+            return Optional.empty();
+
+        String skin = skins.get(ThreadLocalRandom.current().nextInt(skins.size()));
+        return getSkinData(skin, false).map(property -> Pair.of(property, false));
+    }
+
     @Override
     public IProperty fetchSkinData(String skinName) throws SkinRequestException {
+        // Concurrent fetches of the same skin share one storage lookup, upstream request and write
+        return fetchRequests.execute(skinName.toLowerCase(), () -> fetchSkinDataUncoalesced(skinName));
+    }
+
+    private IProperty fetchSkinDataUncoalesced(String skinName) throws SkinRequestException {
         Optional<IProperty> textures = getSkinData(skinName, true);
         if (!textures.isPresent()) {
             // No cached skin found, get from MojangAPI, save and return
@@ -122,13 +211,22 @@ public class SkinStorage implements ISkinStorage {
     public Optional<String> getSkinNameOfPlayer(String playerName) {
         playerName = playerName.toLowerCase();
 
+        // Absent results are cached as well, most players never set a custom skin
+        Optional<Optional<String>> cached = playerSkinCache.get(playerName);
+        if (cached.isPresent())
+            return cached.get();
+
         Optional<String> optional = storageAdapter.getStoredSkinNameOfPlayer(playerName);
+        Optional<String> result = optional.isPresent() && !optional.get().isEmpty() ? optional : Optional.empty();
 
-        return optional.isPresent() && !optional.get().isEmpty() ? optional : Optional.empty();
+        playerSkinCache.put(playerName, result);
+
+        return result;
     }
 
     /**
      * Create a platform specific property and also optionally update cached skin if outdated.
+     * The update may only take {@link Config#LOGIN_LATENCY_BUDGET}, after that the outdated skin is returned.
      *
      * @param playerName     the players name
      * @param updateOutdated whether the skin data shall be looked up again if the timestamp is too far away
@@ -136,26 +234,142 @@ public class SkinStorage implements ISkinStorage {
      * @param signature      signature to verify skin data
      * @param timestamp      time cached property data was created
      * @return Platform specific property
-     * @throws SkinRequestException throws when no API calls were successful
      */
-    private IProperty createProperty(String playerName, boolean updateOutdated, String value, String signature, long timestamp) throws SkinRequestException {
+    private IProperty createProperty(String playerName, boolean updateOutdated, String value, String signature, long timestamp) {
         if (updateOutdated && C.validMojangUsername(playerName) && isExpired(timestamp)) {
-            Optional<IProperty> skin = mojangAPI.getSkin(playerName);
+            Optional<IProperty> skin = refreshSkinData(playerName, Config.LOGIN_LATENCY_BUDGET);
 
-            if (skin.isPresent()) {
-                setSkinData(playerName, skin.get());
+            if (skin.isPresent())
                 return skin.get();
-            }
         }
 
         return SkinsRestorerAPI.getApi().createPlatformProperty(IProperty.TEXTURES_NAME, value, signature);
     }
 
+    /**
+     * Looks up the current skin in the background and waits for it for at most maxWait.
+     * A lookup that takes longer keeps running and saves the skin, so it is up-to-date for the next request.
+     *
+     * @param skinName lowercase skin name
+     * @param maxWait  milliseconds to wait for the lookup
+     * @return updated skin, empty if the lookup failed or is still running
+     */
+    private Optional<IProperty> refreshSkinData(String skinName, long maxWait) {
+        CompletableFuture<Optional<IProperty>> refresh;
+        try {
+            refresh = skinRefreshes.computeIfAbsent(skinName, k -> CompletableFuture.supplyAsync(() ->
+                    lookupSkinData(k), executors.get(SRExecutors.Pool.BACKGROUND)));
+        } catch (RejectedExecutionException e) {
+            logger.debug(String.format("Using outdated skin data for %s, too many skins are being updated", skinName));
+            return Optional.empty();
+        }
+        refresh.whenComplete((skin, throwable) -> skinRefreshes.remove(skinName, refresh));
+
+        try {
+            return refresh.get(maxWait, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.debug(String.format("Using outdated skin data for %s while it is updated", skinName));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.debug(String.format("Failed to update skin data for %s", skinName), e.getCause());
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Looks up and saves the current skin.
+     *
+     * @param skinName lowercase skin name
+     * @return updated skin, empty if the lookup failed
+     */
+    private Optional<IProperty> lookupSkinData(String skinName) {
+        try {
+            Optional<IProperty> skin = mojangAPI.getSkin(skinName);
+            skin.ifPresent(property -> setSkinData(skinName, property));
+
+            return skin;
+        } catch (SkinRequestException e) {
+            logger.debug(String.format("Failed to update skin data for %s", skinName));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Updates recently used skins that expire within {@link Config#SKIN_REFRESHER_REFRESH_AHEAD} minutes,
+     * most recently used first, so joining players get an up-to-date skin without waiting for the update.
+     * Stops early once the lookup services have no requests to spare.
+     */
+    public void refreshExpiringSkins() {
+        if (storageAdapter == null || Config.SKIN_EXPIRES_AFTER <= 0 || Config.DISALLOW_AUTO_UPDATE_SKIN)
+            return;
+
+        long now = System.currentTimeMillis();
+        long expiresBefore = now + TimeUnit.MINUTES.toMillis(Config.SKIN_REFRESHER_REFRESH_AHEAD);
+        long usedAfter = now - TimeUnit.DAYS.toMillis(1);
+        int refreshed = 0;
+        for (String skinName : getRecentlyUsedSkins(usedAfter)) {
+            if (refreshed >= Config.SKIN_REFRESHER_BATCH_SIZE || !mojangAPI.canLookupWithoutWaiting())
+                break;
+
+            Optional<StorageAdapter.StoredProperty> property;
+            try {
+                property = getStoredSkinData(skinName);
+            } catch (Exception e) {
+                continue;
+            }
+
+            long timestamp = property.map(StorageAdapter.StoredProperty::getTimestamp).orElse(0L);
+            if (timestamp == 0 || timestamp + TimeUnit.MINUTES.toMillis(Config.SKIN_EXPIRES_AFTER) > expiresBefore)
+                continue;
+
+            // Skip skins a joining player is already updating
+            CompletableFuture<Optional<IProperty>> refresh = new CompletableFuture<>();
+            if (skinRefreshes.putIfAbsent(skinName, refresh) != null)
+                continue;
+
+            try {
+                refresh.complete(lookupSkinData(skinName));
+            } finally {
+                skinRefreshes.remove(skinName, refresh);
+            }
+
+            refreshed++;
+        }
+
+        if (refreshed > 0)
+            logger.debug(String.format("Updated %d expiring skins", refreshed));
+    }
+
+    /**
+     * @param usedAfter forgets skins that were last used before this time
+     * @return most recently used skins first
+     */
+    private List<String> getRecentlyUsedSkins(long usedAfter) {
+        List<String> skins = new ArrayList<>();
+        synchronized (recentlyUsedSkins) {
+            Iterator<Map.Entry<String, Long>> iterator = recentlyUsedSkins.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Long> entry = iterator.next();
+                if (entry.getValue() < usedAfter) {
+                    iterator.remove();
+                } else {
+                    skins.add(entry.getKey());
+                }
+            }
+        }
+
+        Collections.reverse(skins);
+        return skins;
+    }
+
     @Override
     public void removeSkinOfPlayer(String playerName) {
         playerName = playerName.toLowerCase();
 
         storageAdapter.removeStoredSkinNameOfPlayer(playerName);
+        playerSkinCache.put(playerName, Optional.empty());
     }
 
     @Override
@@ -163,6 +377,20 @@ public class SkinStorage implements ISkinStorage {
         playerName = playerName.toLowerCase();
 
         storageAdapter.setStoredSkinNameOfPlayer(playerName, skinName);
+        playerSkinCache.invalidate(playerName);
+    }
+
+    /**
+     * Sets the skin of multiple players in one storage operation.
+     *
+     * @param skinNames player name to skin name
+     */
+    public void setSkinOfPlayers(Map<String, String> skinNames) {
+        Map<String, String> lowerCaseSkinNames = new LinkedHashMap<>();
+        skinNames.forEach((playerName, skinName) -> lowerCaseSkinNames.put(playerName.toLowerCase(), skinName));
+
+        storageAdapter.setStoredSkinNamesOfPlayers(lowerCaseSkinNames);
+        lowerCaseSkinNames.keySet().forEach(playerSkinCache::invalidate);
     }
 
     // #getSkinData() also create while we have #getSkinForPlayer()
@@ -171,16 +399,19 @@ public class SkinStorage implements ISkinStorage {
         skinName = skinName.toLowerCase();
 
         try {
-            Optional<StorageAdapter.StoredProperty> property = storageAdapter.getStoredSkinData(skinName);
+            Optional<StorageAdapter.StoredProperty> property = getStoredSkinData(skinName);
 
             if (!property.isPresent()) {
                 return Optional.empty();
             }
 
+            if (Config.SKIN_REFRESHER_ENABLED && property.get().getTimestamp() != 0) {
+                synchronized (recentlyUsedSkins) {
+                    recentlyUsedSkins.put(skinName, System.currentTimeMillis());
+                }
+            }
+
             return Optional.of(createProperty(skinName, updateOutdated, property.get().getValue(), property.get().getSignature(), property.get().getTimestamp()));
-        } catch (SkinRequestException e) {
-            logger.debug(String.format("Failed to update skin data for %s", skinName));
-            return Optional.empty();
         } catch (Exception e) {
             logger.info(String.format("Unsupported skin format... removing (%s).", skinName));
             removeSkinData(skinName);
@@ -188,6 +419,23 @@ public class SkinStorage implements ISkinStorage {
         }
     }
 
+    /**
+     * Reads skin data through the in-memory cache, only hitting the storage adapter on a miss.
+     *
+     * @param skinName lowercase skin name
+     * @return stored property if present
+     */
+    private Optional<StorageAdapter.StoredProperty> getStoredSkinData(String skinName) throws Exception {
+        Optional<StorageAdapter.StoredProperty> cached = skinDataCache.get(skinName);
+        if (cached.isPresent())
+            return cached;
+
+        Optional<StorageAdapter.StoredProperty> property = storageAdapter.getStoredSkinData(skinName);
+        property.ifPresent(storedProperty -> skinDataCache.put(skinName, storedProperty));
+
+        return property;
+    }
+
     /**
      * Removes skin data from database
      *
@@ -196,7 +444,9 @@ public class SkinStorage implements ISkinStorage {
     public void removeSkinData(String skinName) {
         skinName = skinName.toLowerCase();
 
+        skinDataCache.invalidate(skinName);
         storageAdapter.removeStoredSkinData(skinName);
+        clearPageCursors();
     }
 
     @Override
@@ -213,7 +463,29 @@ public class SkinStorage implements ISkinStorage {
         if (value.isEmpty() || signature.isEmpty())
             return;
 
-        storageAdapter.setStoredSkinData(skinName, new StorageAdapter.StoredProperty(value, signature, timestamp));
+        StorageAdapter.StoredProperty storedProperty = new StorageAdapter.StoredProperty(value, signature, timestamp);
+        Optional<StorageAdapter.StoredProperty> cached = skinDataCache.get(skinName);
+
+        boolean added = storageAdapter.setStoredSkinData(skinName, storedProperty);
+        skinDataCache.put(skinName, storedProperty);
+        if (added) {
+            // A new skin name shifts all later skins in the list, so the page cursors after it are off by one
+            clearPageCursors();
+        } else if (!cached.isPresent() || !cached.get().getValue().equals(value)) {
+            for (Consumer<String> listener : skinChangeListeners) {
+                listener.accept(skinName);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener that is called with the lowercase skin name whenever the value of an existing skin changes,
+     * e.g. to drop GUI pages showing the old head. Added and removed skins bump {@link #getSkinListVersion()} instead.
+     *
+     * @param listener Listener, called on the thread that wrote the skin
+     */
+    public void addSkinChangeListener(Consumer<String> listener) {
+        skinChangeListeners.add(listener);
     }
 
     @Override
@@ -221,10 +493,141 @@ public class SkinStorage implements ISkinStorage {
         return storageAdapter != null;
     }
 
-    // TODO: CUSTOM_GUI
-    // seems to be that crs order is ignored...
+    /**
+     * Get a page of skins for the skins GUI.
+     * Pages are looked up by seeking after the last skin of the previous page, which is remembered per offset,
+     * so browsing to later pages does not make the storage skip over all previous skins.
+     * If {@link Config#CUSTOM_GUI_ENABLED} is set, the custom GUI skins are listed before all other skins.
+     *
+     * @param offset number of skins before this page
+     * @return lowercase skin name to skin value
+     */
     public Map<String, String> getSkins(int offset) {
-        return storageAdapter.getStoredSkins(offset);
+        Map<String, String> skins = new TreeMap<>();
+        streamSkins(offset, SKINS_PER_PAGE, skins::put);
+        return skins;
+    }
+
+    /**
+     * Same as {@link #getSkins(int)}, but hands every skin to the consumer as soon as it was read from the storage.
+     * Custom GUI skins come first, all other skins follow in storage order.
+     *
+     * @param offset    number of skins before this page
+     * @param batchSize max number of skins read from the storage at once
+     * @param consumer  called with the lowercase skin name and skin value
+     */
+    public void streamSkins(int offset, int batchSize, BiConsumer<String, String> consumer) {
+        Map<String, String> customSkins = getCustomGUISkins();
+        int customCount = customSkins.size();
+        List<Map.Entry<String, String>> customPage = customSkins.entrySet().stream().skip(offset).limit(SKINS_PER_PAGE)
+                .collect(Collectors.toList());
+        customPage.forEach(entry -> consumer.accept(entry.getKey(), entry.getValue()));
+
+        int remaining = SKINS_PER_PAGE - customPage.size();
+        if (remaining <= 0)
+            return;
+
+        int regularOffset = Math.max(0, offset - customCount);
+        Map.Entry<Integer, String> cursor;
+        synchronized (pageCursors) {
+            cursor = pageCursors.floorEntry(regularOffset);
+        }
+
+        String afterSkinName = cursor == null ? "" : cursor.getValue();
+        int cursorOffset = cursor == null ? 0 : cursor.getKey();
+
+        // Jumped to a page we have no cursor for yet, skip forward from the closest known one by skin name only
+        if (cursorOffset < regularOffset)
+            afterSkinName = skipSkins(afterSkinName, regularOffset - cursorOffset, customSkins.keySet());
+
+        int[] pageSize = {0};
+        String pageEnd = seekSkins(afterSkinName, remaining, batchSize, customSkins.keySet(), (skinName, value) -> {
+            pageSize[0]++;
+            consumer.accept(skinName, value);
+        });
+
+        synchronized (pageCursors) {
+            pageCursors.put(regularOffset, afterSkinName);
+            pageCursors.put(regularOffset + pageSize[0], pageEnd);
+        }
+    }
+
+    public long getSkinListVersion() {
+        return skinListVersion.get();
+    }
+
+    private void clearPageCursors() {
+        synchronized (pageCursors) {
+            pageCursors.clear();
+        }
+
+        skinListVersion.incrementAndGet();
+    }
+
+    /**
+     * Walks over the stored skins in storage order.
+     *
+     * @param afterSkinName skin name to start after
+     * @param count         number of skins to walk over
+     * @param batchSize     max number of skins read from the storage at once
+     * @param exclude       skins that are skipped and not counted
+     * @param collect       called with the walked over skins
+     * @return name of the last skin walked over, or afterSkinName if there were no more skins
+     */
+    private String seekSkins(String afterSkinName, int count, int batchSize, Set<String> exclude, BiConsumer<String, String> collect) {
+        while (count > 0) {
+            Map<String, String> chunk = storageAdapter.getStoredSkinsAfter(afterSkinName, Math.min(count, batchSize));
+            if (chunk.isEmpty())
+                break;
+
+            for (Map.Entry<String, String> entry : chunk.entrySet()) {
+                afterSkinName = entry.getKey();
+                if (exclude.contains(afterSkinName))
+                    continue;
+
+                collect.accept(entry.getKey(), entry.getValue());
+                count--;
+            }
+        }
+
+        return afterSkinName;
+    }
+
+    /**
+     * Same as {@link #seekSkins(String, int, int, Set, BiConsumer)}, but only reads skin names.
+     *
+     * @return name of the last skin skipped, or afterSkinName if there were no more skins
+     */
+    private String skipSkins(String afterSkinName, int count, Set<String> exclude) {
+        while (count > 0) {
+            List<String> chunk = storageAdapter.getStoredSkinNamesAfter(afterSkinName, Math.min(count, SKIP_BATCH_SIZE));
+            if (chunk.isEmpty())
+                break;
+
+            for (String skinName : chunk) {
+                afterSkinName = skinName;
+                if (!exclude.contains(skinName))
+                    count--;
+            }
+        }
+
+        return afterSkinName;
+    }
+
+    private Map<String, String> getCustomGUISkins() {
+        Map<String, String> customSkins = new TreeMap<>();
+        if (!Config.CUSTOM_GUI_ENABLED || Config.CUSTOM_GUI_ONLY)
+            return customSkins;
+
+        for (String skinName : Config.CUSTOM_GUI_SKINS) {
+            try {
+                getStoredSkinData(skinName.toLowerCase()).ifPresent(property -> customSkins.put(skinName.toLowerCase(), property.getValue()));
+            } catch (Exception e) {
+                logger.debug(String.format("Failed to load custom GUI skin %s", skinName), e);
+            }
+        }
+
+        return customSkins;
     }
 
     /**
@@ -276,6 +679,15 @@ public class SkinStorage implements ISkinStorage {
      * @return Custom skin or default skin or player name, right side indicates if it is a custom skin
      */
     public Pair<String, Boolean> getDefaultSkinName(String playerName, boolean clear) {
+        // Always present when web requests are allowed
+        return getDefaultSkinName(playerName, clear, false).orElseThrow(IllegalStateException::new);
+    }
+
+    /**
+     * @param storedOnly only use the stored premium status, even if it is outdated
+     * @return empty if storedOnly is set and the premium status of the player is not stored
+     */
+    private Optional<Pair<String, Boolean>> getDefaultSkinName(String playerName, boolean clear, boolean storedOnly) {
         // Trim player name
         playerName = playerName.trim();
 
@@ -283,7 +695,7 @@ public class SkinStorage implements ISkinStorage {
             Optional<String> playerSkinName = getSkinNameOfPlayer(playerName);
 
             if (playerSkinName.isPresent()) {
-                return Pair.of(playerSkinName.get(), true);
+                return Optional.of(Pair.of(playerSkinName.get(), true));
             }
         }
 
@@ -291,13 +703,15 @@ public class SkinStorage implements ISkinStorage {
             // don't return default skin name for premium players if enabled
             if (!Config.DEFAULT_SKINS_PREMIUM) {
                 // check if player is premium
-                try {
-                    if (mojangAPI.getUUID(playerName) != null) {
-                        // player is premium, return his skin name instead of default skin
-                        return Pair.of(playerName, false);
-                    }
-                } catch (SkinRequestException ignored) {
-                    // Player is not premium catching exception here to continue returning a default skin name
+                Optional<Boolean> premium = storedOnly
+                        ? getStoredPremiumStatus(playerName.toLowerCase()).map(StorageAdapter.StoredPremiumStatus::isPremium)
+                        : Optional.of(isPremium(playerName));
+                if (!premium.isPresent())
+                    return Optional.empty();
+
+                if (premium.get()) {
+                    // player is premium, return his skin name instead of default skin
+                    return Optional.of(Pair.of(playerName, false));
                 }
             }
 
@@ -306,18 +720,75 @@ public class SkinStorage implements ISkinStorage {
 
             // return player name if there are no default skins set
             if (skins.isEmpty())
-                return Pair.of(playerName, false);
+                return Optional.of(Pair.of(playerName, false));
 
             // makes no sense to select a random skin if there is only one
             if (skins.size() == 1) {
-                return Pair.of(skins.get(0), false);
+                return Optional.of(Pair.of(skins.get(0), false));
             }
 
-            return Pair.of(skins.get(ThreadLocalRandom.current().nextInt(skins.size())), false);
+            return Optional.of(Pair.of(skins.get(ThreadLocalRandom.current().nextInt(skins.size())), false));
         }
 
         // empty if player has no custom skin, we'll return his name then
-        return Pair.of(playerName, false);
+        return Optional.of(Pair.of(playerName, false));
+    }
+
+    /**
+     * Checks if a player name belongs to a premium account.
+     * Answers are remembered in memory and in the storage, so repeat joins don't need a web request.
+     * An outdated answer is still used while the web services can't tell.
+     *
+     * @param playerName Player name
+     * @return true if the name is premium, false if not or unknown
+     */
+    public boolean isPremium(String playerName) {
+        String lowerPlayerName = playerName.toLowerCase();
+
+        Optional<StorageAdapter.StoredPremiumStatus> stored = getStoredPremiumStatus(lowerPlayerName);
+        if (stored.isPresent() && !isExpired(stored.get()))
+            return stored.get().isPremium();
+
+        boolean fallback = stored.map(StorageAdapter.StoredPremiumStatus::isPremium).orElse(false);
+        StorageAdapter.StoredPremiumStatus premiumStatus;
+        try {
+            String uuid = mojangAPI.getUUID(playerName);
+
+            // No service knew the answer, don't remember that
+            if (uuid == null)
+                return fallback;
+
+            premiumStatus = new StorageAdapter.StoredPremiumStatus(uuid, System.currentTimeMillis());
+        } catch (NotPremiumException e) {
+            premiumStatus = new StorageAdapter.StoredPremiumStatus(null, System.currentTimeMillis());
+        } catch (SkinRequestException e) {
+            return fallback;
+        }
+
+        storageAdapter.setStoredPremiumStatus(lowerPlayerName, premiumStatus);
+        premiumStatusCache.put(lowerPlayerName, premiumStatus);
+
+        return premiumStatus.isPremium();
+    }
+
+    /**
+     * @param lowerPlayerName lowercase player name
+     * @return last known premium status, regardless of its age
+     */
+    private Optional<StorageAdapter.StoredPremiumStatus> getStoredPremiumStatus(String lowerPlayerName) {
+        Optional<StorageAdapter.StoredPremiumStatus> stored = premiumStatusCache.get(lowerPlayerName);
+        if (!stored.isPresent()) {
+            stored = storageAdapter.getStoredPremiumStatus(lowerPlayerName);
+            stored.ifPresent(status -> premiumStatusCache.put(lowerPlayerName, status));
+        }
+
+        return stored;
+    }
+
+    private boolean isExpired(StorageAdapter.StoredPremiumStatus premiumStatus) {
+        int expiresAfter = premiumStatus.isPremium() ? Config.PREMIUM_STATUS_EXPIRE_AFTER : Config.PREMIUM_STATUS_NOT_PREMIUM_EXPIRE_AFTER;
+
+        return premiumStatus.getTimestamp() + TimeUnit.MINUTES.toMillis(expiresAfter) <= System.currentTimeMillis();
     }
 
     /**
@@ -339,6 +810,8 @@ public class SkinStorage implements ISkinStorage {
 
         try {
             storageAdapter.purgeStoredOldSkins(targetPurgeTimestamp);
+            skinDataCache.invalidateAll();
+            clearPageCursors();
             return true; // TODO: Do better than true/false return
         } catch (StorageAdapter.StorageException e) {
             e.printStackTrace();
@@ -0,0 +1,143 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.storage;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Small in-process LRU cache with a fixed time to live per entry.
+ * Entries are evicted when the cache grows past {@code maxSize} or when they are read after they expired.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class TimedCache<K, V> {
+    private final int maxSize;
+    private final long expireAfterMillis;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final Map<K, Entry<V>> map;
+
+    public TimedCache(int maxSize, long expireAfter, TimeUnit timeUnit) {
+        this.maxSize = maxSize;
+        this.expireAfterMillis = timeUnit.toMillis(expireAfter);
+        this.map = new LinkedHashMap<K, Entry<V>>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > TimedCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return false if the cache was configured with a size or time to live of 0
+     */
+    public boolean isEnabled() {
+        return maxSize > 0 && expireAfterMillis > 0;
+    }
+
+    public Optional<V> get(K key) {
+        if (!isEnabled())
+            return Optional.empty();
+
+        synchronized (map) {
+            Entry<V> entry = map.get(key);
+
+            if (entry == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+
+            if (entry.expiresAt <= System.currentTimeMillis()) {
+                map.remove(key);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+
+            hits.incrementAndGet();
+            return Optional.of(entry.value);
+        }
+    }
+
+    public void put(K key, V value) {
+        if (!isEnabled())
+            return;
+
+        synchronized (map) {
+            map.put(key, new Entry<>(value, System.currentTimeMillis() + expireAfterMillis));
+        }
+    }
+
+    public void invalidate(K key) {
+        synchronized (map) {
+            map.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return size and statistics of this cache, shown in /sr status
+     */
+    public String getStatsString() {
+        return size() + " entries, " + hits.get() + " hits, " + misses.get() + " misses, " + evictions.get() + " evictions";
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+    }
+}
@@ -29,14 +29,17 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class FileAdapter implements StorageAdapter {
     private static final Pattern FORBIDDEN_CHARS_PATTERN = Pattern.compile("[\\\\/:*\"<>|.\\?]");
     private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s");
     private final Path skinsFolder;
     private final Path playersFolder;
+    private final Path premiumFolder;
+    private final Path generatedFolder;
+    private ConcurrentSkipListMap<String, String> skinIndex;
 
     public FileAdapter(Path dataFolder) throws IOException {
         skinsFolder = dataFolder.resolve("Skins");
@@ -44,6 +47,12 @@ public class FileAdapter implements StorageAdapter {
 
         playersFolder = dataFolder.resolve("Players");
         Files.createDirectories(playersFolder);
+
+        premiumFolder = dataFolder.resolve("Premium");
+        Files.createDirectories(premiumFolder);
+
+        generatedFolder = dataFolder.resolve("Generated");
+        Files.createDirectories(generatedFolder);
     }
 
     @Override
@@ -97,6 +106,11 @@ public class FileAdapter implements StorageAdapter {
         }
     }
 
+    @Override
+    public void setStoredSkinNamesOfPlayers(Map<String, String> skinNames) {
+        skinNames.forEach(this::setStoredSkinNameOfPlayer);
+    }
+
     @Override
     public Optional<StoredProperty> getStoredSkinData(String skinName) throws Exception {
         Path skinFile = resolveSkinFile(skinName);
@@ -120,65 +134,101 @@ public class FileAdapter implements StorageAdapter {
 
         try {
             Files.deleteIfExists(skinFile);
+            removeFromSkinIndex(resolveSkinFileName(skinName));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     @Override
-    public void setStoredSkinData(String skinName, StoredProperty storedProperty) {
+    public boolean setStoredSkinData(String skinName, StoredProperty storedProperty) {
         Path skinFile = resolveSkinFile(skinName);
+        boolean added = !Files.exists(skinFile);
 
         try (OutputStreamWriter writer = new OutputStreamWriter(Files.newOutputStream(skinFile), StandardCharsets.UTF_8)) {
             writer.write(storedProperty.getValue() + "\n" + storedProperty.getSignature() + "\n" + storedProperty.getTimestamp());
         } catch (Exception e) {
             e.printStackTrace();
+            return false;
         }
+
+        addToSkinIndex(resolveSkinFileName(skinName));
+        return added;
     }
 
     @Override
-    public Map<String, String> getStoredSkins(int offset) {
-        Map<String, String> list = new TreeMap<>();
-        List<Path> files = new ArrayList<>();
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(skinsFolder, "*.skin")) {
-            stream.forEach(files::add);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    public void setStoredSkinData(Map<String, StoredProperty> storedProperties) {
+        storedProperties.forEach(this::setStoredSkinData);
+    }
 
-        List<String> skinNames = files.stream().map(Path::getFileName).map(Path::toString).map(s ->
-                s.substring(0, s.length() - 5) // remove .skin (5 characters)
-        ).sorted().collect(Collectors.toList());
+    @Override
+    public Map<String, String> getStoredSkinsAfter(String afterSkinName, int limit) {
+        Map<String, String> list = new LinkedHashMap<>();
 
-        int i = 0;
-        for (String skinName : skinNames) {
-            if (list.size() >= 36)
+        for (Map.Entry<String, String> entry : getSkinIndex().tailMap(afterSkinName, false).entrySet()) {
+            if (list.size() >= limit)
                 break;
 
-            if (i >= offset) {
-                if (Config.CUSTOM_GUI_ONLY) { // Show only Config.CUSTOM_GUI_SKINS in the gui
-                    for (String guiSkins : Config.CUSTOM_GUI_SKINS) {
-                        if (skinName.toLowerCase().contains(guiSkins.toLowerCase())) {
-                            try {
-                                getStoredSkinData(skinName).ifPresent(property -> list.put(skinName.toLowerCase(), property.getValue()));
-                            } catch (Exception e) {
-                                e.printStackTrace();
-                            }
-                        }
-                    }
-                } else {
-                    try {
-                        getStoredSkinData(skinName).ifPresent(property -> list.put(skinName.toLowerCase(), property.getValue()));
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
+            String skinName = entry.getKey();
+            // Show only Config.CUSTOM_GUI_SKINS in the gui
+            if (Config.CUSTOM_GUI_ONLY && Config.CUSTOM_GUI_SKINS.stream().noneMatch(guiSkin -> skinName.contains(guiSkin.toLowerCase())))
+                continue;
+
+            try {
+                getStoredSkinData(entry.getValue()).ifPresent(property -> list.put(skinName, property.getValue()));
+            } catch (Exception e) {
+                e.printStackTrace();
             }
-            i++;
         }
+
         return list;
     }
 
+    @Override
+    public List<String> getStoredSkinNamesAfter(String afterSkinName, int limit) {
+        List<String> list = new ArrayList<>();
+
+        // Served from the index, no skin file is opened
+        for (String skinName : getSkinIndex().tailMap(afterSkinName, false).keySet()) {
+            if (list.size() >= limit)
+                break;
+
+            // Show only Config.CUSTOM_GUI_SKINS in the gui
+            if (Config.CUSTOM_GUI_ONLY && Config.CUSTOM_GUI_SKINS.stream().noneMatch(guiSkin -> skinName.contains(guiSkin.toLowerCase())))
+                continue;
+
+            list.add(skinName);
+        }
+
+        return list;
+    }
+
+    /**
+     * Ordered index of all skin files, so listing a page does not need to list and sort the whole skins folder.
+     * Built on first use and kept up to date by the write methods of this adapter.
+     *
+     * @return lowercase skin name to skin file name (without .skin)
+     */
+    private synchronized ConcurrentSkipListMap<String, String> getSkinIndex() {
+        if (skinIndex != null)
+            return skinIndex;
+
+        ConcurrentSkipListMap<String, String> index = new ConcurrentSkipListMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(skinsFolder, "*.skin")) {
+            for (Path file : stream) {
+                String fileName = file.getFileName().toString();
+                String skinName = fileName.substring(0, fileName.length() - 5); // remove .skin (5 characters)
+
+                index.put(skinName.toLowerCase(), skinName);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        skinIndex = index;
+        return index;
+    }
+
     @Override
     public Optional<Long> getStoredTimestamp(String skinName) {
         Path skinFile = resolveSkinFile(skinName);
@@ -213,6 +263,9 @@ public class FileAdapter implements StorageAdapter {
 
                     if (timestamp != 0L && timestamp < targetPurgeTimestamp) {
                         Files.deleteIfExists(file);
+
+                        String fileName = file.getFileName().toString();
+                        removeFromSkinIndex(fileName.substring(0, fileName.length() - 5)); // remove .skin (5 characters)
                     }
                 } catch (Exception ignored) {
                 }
@@ -223,10 +276,88 @@ public class FileAdapter implements StorageAdapter {
         }
     }
 
+    @Override
+    public Optional<StoredPremiumStatus> getStoredPremiumStatus(String playerName) {
+        Path premiumFile = resolvePremiumFile(playerName);
+
+        try {
+            if (!Files.exists(premiumFile))
+                return Optional.empty();
+
+            List<String> lines = Files.readAllLines(premiumFile);
+
+            if (lines.size() < 2)
+                return Optional.empty();
+
+            String uuid = lines.get(0);
+            return Optional.of(new StoredPremiumStatus(uuid.isEmpty() ? null : uuid, Long.parseLong(lines.get(1))));
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void setStoredPremiumStatus(String playerName, StoredPremiumStatus premiumStatus) {
+        Path premiumFile = resolvePremiumFile(playerName);
+
+        try (OutputStreamWriter writer = new OutputStreamWriter(Files.newOutputStream(premiumFile), StandardCharsets.UTF_8)) {
+            // Empty first line for names that are not premium
+            writer.write((premiumStatus.isPremium() ? premiumStatus.getUuid() : "") + "\n" + premiumStatus.getTimestamp());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public Optional<StoredProperty> getStoredGeneratedSkin(String hash) {
+        Path generatedFile = generatedFolder.resolve(hash + ".skin");
+
+        try {
+            if (!Files.exists(generatedFile))
+                return Optional.empty();
+
+            List<String> lines = Files.readAllLines(generatedFile);
+
+            if (lines.size() < 3)
+                return Optional.empty();
+
+            return Optional.of(new StoredProperty(lines.get(0), lines.get(1), Long.parseLong(lines.get(2))));
+        } catch (IOException | NumberFormatException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void setStoredGeneratedSkin(String hash, StoredProperty storedProperty) {
+        Path generatedFile = generatedFolder.resolve(hash + ".skin");
+
+        try (OutputStreamWriter writer = new OutputStreamWriter(Files.newOutputStream(generatedFile), StandardCharsets.UTF_8)) {
+            writer.write(storedProperty.getValue() + "\n" + storedProperty.getSignature() + "\n" + storedProperty.getTimestamp());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Only kept up to date once the index was built, waits for a running build
+    private synchronized void addToSkinIndex(String fileSkinName) {
+        if (skinIndex != null)
+            skinIndex.put(fileSkinName.toLowerCase(), fileSkinName);
+    }
+
+    private synchronized void removeFromSkinIndex(String fileSkinName) {
+        if (skinIndex != null)
+            skinIndex.remove(fileSkinName.toLowerCase());
+    }
+
     private Path resolveSkinFile(String skinName) {
+        return skinsFolder.resolve(resolveSkinFileName(skinName) + ".skin");
+    }
+
+    private String resolveSkinFileName(String skinName) {
         skinName = removeWhitespaces(skinName);
-        skinName = replaceForbiddenChars(skinName);
-        return skinsFolder.resolve(skinName + ".skin");
+        return replaceForbiddenChars(skinName);
     }
 
     private Path resolvePlayerFile(String playerName) {
@@ -234,6 +365,11 @@ public class FileAdapter implements StorageAdapter {
         return playersFolder.resolve(playerName + ".player");
     }
 
+    private Path resolvePremiumFile(String playerName) {
+        playerName = replaceForbiddenChars(playerName);
+        return premiumFolder.resolve(playerName + ".premium");
+    }
+
     private String replaceForbiddenChars(String str) {
         // Escape all Windows / Linux forbidden printable ASCII characters
         return FORBIDDEN_CHARS_PATTERN.matcher(str).replaceAll("·");
@@ -20,30 +20,23 @@
 package net.skinsrestorer.shared.storage.adapter;
 
 import lombok.RequiredArgsConstructor;
+import net.skinsrestorer.api.util.Pair;
 import net.skinsrestorer.shared.storage.Config;
 import net.skinsrestorer.shared.storage.MySQL;
 
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Collections;
-import java.util.Map;
-import java.util.Optional;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
+import java.util.*;
 
 @RequiredArgsConstructor
 public class MySQLAdapter implements StorageAdapter {
+    private static final int PURGE_CHUNK_SIZE = 1000;
     private final MySQL mysql;
 
     @Override
     public Optional<String> getStoredSkinNameOfPlayer(String playerName) {
-        try (ResultSet crs = mysql.query("SELECT * FROM " + Config.MYSQL_PLAYER_TABLE + " WHERE Nick=?", playerName)) {
-            if (crs == null)
-                return Optional.empty();
-
-            String skin = crs.getString("Skin");
-
-            return Optional.of(skin);
+        try {
+            return mysql.queryFirst("SELECT Skin FROM " + Config.MYSQL_PLAYER_TABLE + " WHERE Nick=?",
+                    rs -> rs.getString("Skin"), playerName);
         } catch (SQLException e) {
             e.printStackTrace();
             return Optional.empty();
@@ -62,17 +55,18 @@ public class MySQLAdapter implements StorageAdapter {
     }
 
     @Override
-    public Optional<StoredProperty> getStoredSkinData(String skinName) throws Exception {
-        try (ResultSet crs = mysql.query("SELECT * FROM " + Config.MYSQL_SKIN_TABLE + " WHERE Nick=?", skinName)) {
-            if (crs == null)
-                return Optional.empty();
+    public void setStoredSkinNamesOfPlayers(Map<String, String> skinNames) {
+        List<Object[]> batch = new ArrayList<>(skinNames.size());
+        skinNames.forEach((playerName, skinName) -> batch.add(new Object[]{playerName, skinName, skinName}));
 
-            final String value = crs.getString("Value");
-            final String signature = crs.getString("Signature");
-            final String timestamp = crs.getString("timestamp");
+        mysql.executeBatch("INSERT INTO " + Config.MYSQL_PLAYER_TABLE + " (Nick, Skin) VALUES (?,?) ON DUPLICATE KEY UPDATE Skin=?", batch);
+    }
 
-            return Optional.of(new StoredProperty(value, signature, Long.parseLong(timestamp)));
-        }
+    @Override
+    public Optional<StoredProperty> getStoredSkinData(String skinName) throws Exception {
+        return mysql.queryFirst("SELECT Value, Signature, timestamp FROM " + Config.MYSQL_SKIN_TABLE + " WHERE Nick=?",
+                rs -> new StoredProperty(rs.getString("Value"), rs.getString("Signature"), rs.getLong("timestamp")),
+                skinName);
     }
 
     @Override
@@ -81,34 +75,46 @@ public class MySQLAdapter implements StorageAdapter {
     }
 
     @Override
-    public void setStoredSkinData(String skinName, StoredProperty storedProperty) {
-        mysql.execute("INSERT INTO " + Config.MYSQL_SKIN_TABLE + " (Nick, Value, Signature, timestamp) VALUES (?,?,?,?) ON DUPLICATE KEY UPDATE Value=?, Signature=?, timestamp=?",
-                skinName, storedProperty.getValue(), storedProperty.getSignature(), String.valueOf(storedProperty.getTimestamp()),
-                storedProperty.getValue(), storedProperty.getSignature(), String.valueOf(storedProperty.getTimestamp()));
+    public boolean setStoredSkinData(String skinName, StoredProperty storedProperty) {
+        try {
+            // ON DUPLICATE KEY UPDATE reports 1 row for an insert and 2 for an update of an existing row
+            return mysql.executeUpdate("INSERT INTO " + Config.MYSQL_SKIN_TABLE + " (Nick, Value, Signature, timestamp) VALUES (?,?,?,?) ON DUPLICATE KEY UPDATE Value=?, Signature=?, timestamp=?",
+                    skinName, storedProperty.getValue(), storedProperty.getSignature(), storedProperty.getTimestamp(),
+                    storedProperty.getValue(), storedProperty.getSignature(), storedProperty.getTimestamp()) == 1;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
     }
 
     @Override
-    public Map<String, String> getStoredSkins(int offset) {
-        Map<String, String> list = new TreeMap<>();
+    public void setStoredSkinData(Map<String, StoredProperty> storedProperties) {
+        List<Object[]> batch = new ArrayList<>(storedProperties.size());
+        storedProperties.forEach((skinName, storedProperty) -> batch.add(new Object[]{
+                skinName, storedProperty.getValue(), storedProperty.getSignature(), storedProperty.getTimestamp(),
+                storedProperty.getValue(), storedProperty.getSignature(), storedProperty.getTimestamp()}));
+
+        mysql.executeBatch("INSERT INTO " + Config.MYSQL_SKIN_TABLE + " (Nick, Value, Signature, timestamp) VALUES (?,?,?,?) ON DUPLICATE KEY UPDATE Value=?, Signature=?, timestamp=?", batch);
+    }
+
+    @Override
+    public Map<String, String> getStoredSkinsAfter(String afterSkinName, int limit) {
+        Map<String, String> list = new LinkedHashMap<>();
         String filterBy = "";
-        String orderBy = "Nick";
-
-        // Custom GUI
-        if (Config.CUSTOM_GUI_ENABLED) {
-            if (Config.CUSTOM_GUI_ONLY) {
-                filterBy = "WHERE Nick RLIKE '" + String.join("|", Config.CUSTOM_GUI_SKINS) + "'";
-            } else {
-                orderBy = "FIELD(Nick, " + Config.CUSTOM_GUI_SKINS.stream().map(skin -> "'" + skin + "'").collect(Collectors.joining(", ")) + ") DESC, Nick";
-            }
+
+        // Show only Config.CUSTOM_GUI_SKINS in the gui
+        if (Config.CUSTOM_GUI_ONLY) {
+            filterBy = " AND Nick RLIKE '" + String.join("|", Config.CUSTOM_GUI_SKINS) + "'";
         }
 
-        try (ResultSet crs = mysql.query("SELECT Nick, Value, Signature FROM " + Config.MYSQL_SKIN_TABLE + " " + filterBy + " ORDER BY " + orderBy + " LIMIT " + offset + ", 36")) {
-            if (crs == null)
-                return Collections.emptyMap();
+        // Seeks over the primary key, so later pages cost the same as the first one
+        try {
+            List<Pair<String, String>> rows = mysql.query("SELECT Nick, Value FROM " + Config.MYSQL_SKIN_TABLE + " WHERE Nick > ?" + filterBy + " ORDER BY Nick LIMIT " + limit,
+                    rs -> Pair.of(rs.getString("Nick"), rs.getString("Value")), afterSkinName);
 
-            do {
-                list.put(crs.getString("Nick").toLowerCase(), crs.getString("Value"));
-            } while (crs.next());
+            for (Pair<String, String> row : rows) {
+                list.put(row.getLeft().toLowerCase(), row.getRight());
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -116,17 +122,29 @@ public class MySQLAdapter implements StorageAdapter {
     }
 
     @Override
-    public Optional<Long> getStoredTimestamp(String skinName) {
-        try (ResultSet crs = mysql.query("SELECT timestamp FROM " + Config.MYSQL_SKIN_TABLE + " WHERE Nick=?", skinName)) {
-            if (crs == null)
-                return Optional.empty();
+    public List<String> getStoredSkinNamesAfter(String afterSkinName, int limit) {
+        String filterBy = "";
 
-            String timestampString = crs.getString("timestamp");
+        // Show only Config.CUSTOM_GUI_SKINS in the gui
+        if (Config.CUSTOM_GUI_ONLY) {
+            filterBy = " AND Nick RLIKE '" + String.join("|", Config.CUSTOM_GUI_SKINS) + "'";
+        }
 
-            if (timestampString == null)
-                return Optional.empty();
+        // Only reads the primary key index
+        try {
+            return mysql.query("SELECT Nick FROM " + Config.MYSQL_SKIN_TABLE + " WHERE Nick > ?" + filterBy + " ORDER BY Nick LIMIT " + limit,
+                    rs -> rs.getString("Nick").toLowerCase(), afterSkinName);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
 
-            return Optional.of(Long.parseLong(timestampString));
+    @Override
+    public Optional<Long> getStoredTimestamp(String skinName) {
+        try {
+            return mysql.queryFirst("SELECT timestamp FROM " + Config.MYSQL_SKIN_TABLE + " WHERE Nick=?",
+                    rs -> rs.getLong("timestamp"), skinName);
         } catch (SQLException e) {
             e.printStackTrace();
             return Optional.empty();
@@ -134,8 +152,52 @@ public class MySQLAdapter implements StorageAdapter {
     }
 
     @Override
-    public void purgeStoredOldSkins(long targetPurgeTimestamp) {
+    public void purgeStoredOldSkins(long targetPurgeTimestamp) throws StorageException {
         // delete if name not start with " " and timestamp below targetPurgeTimestamp
-        mysql.execute("DELETE FROM " + Config.MYSQL_SKIN_TABLE + " WHERE Nick NOT LIKE ' %' AND " + Config.MYSQL_SKIN_TABLE + ".timestamp NOT LIKE 0 AND " + Config.MYSQL_SKIN_TABLE + ".timestamp<=?", targetPurgeTimestamp);
+        // runs in small chunks over the timestamp index, so other queries are never locked out for long
+        try {
+            int deleted;
+            do {
+                deleted = mysql.executeUpdate("DELETE FROM " + Config.MYSQL_SKIN_TABLE + " WHERE timestamp != 0 AND timestamp <= ? AND Nick NOT LIKE ' %' LIMIT " + PURGE_CHUNK_SIZE,
+                        targetPurgeTimestamp);
+            } while (deleted >= PURGE_CHUNK_SIZE);
+        } catch (SQLException e) {
+            throw new StorageException(e);
+        }
+    }
+
+    @Override
+    public Optional<StoredPremiumStatus> getStoredPremiumStatus(String playerName) {
+        try {
+            return mysql.queryFirst("SELECT UUID, timestamp FROM " + Config.MYSQL_PREMIUM_TABLE + " WHERE Nick=?",
+                    rs -> new StoredPremiumStatus(rs.getString("UUID"), rs.getLong("timestamp")), playerName);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void setStoredPremiumStatus(String playerName, StoredPremiumStatus premiumStatus) {
+        mysql.execute("INSERT INTO " + Config.MYSQL_PREMIUM_TABLE + " (Nick, UUID, timestamp) VALUES (?,?,?) ON DUPLICATE KEY UPDATE UUID=?, timestamp=?",
+                playerName, premiumStatus.getUuid(), premiumStatus.getTimestamp(), premiumStatus.getUuid(), premiumStatus.getTimestamp());
+    }
+
+    @Override
+    public Optional<StoredProperty> getStoredGeneratedSkin(String hash) {
+        try {
+            return mysql.queryFirst("SELECT Value, Signature, timestamp FROM " + Config.MYSQL_GENERATED_SKIN_TABLE + " WHERE Hash=?",
+                    rs -> new StoredProperty(rs.getString("Value"), rs.getString("Signature"), rs.getLong("timestamp")), hash);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void setStoredGeneratedSkin(String hash, StoredProperty storedProperty) {
+        mysql.execute("INSERT INTO " + Config.MYSQL_GENERATED_SKIN_TABLE + " (Hash, Value, Signature, timestamp) VALUES (?,?,?,?) ON DUPLICATE KEY UPDATE Value=?, Signature=?, timestamp=?",
+                hash, storedProperty.getValue(), storedProperty.getSignature(), storedProperty.getTimestamp(),
+                storedProperty.getValue(), storedProperty.getSignature(), storedProperty.getTimestamp());
     }
 }
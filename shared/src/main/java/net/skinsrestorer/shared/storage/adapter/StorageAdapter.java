@@ -22,6 +22,7 @@ package net.skinsrestorer.shared.storage.adapter;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -32,18 +33,70 @@ public interface StorageAdapter {
 
     void setStoredSkinNameOfPlayer(String playerName, String skinName);
 
+    /**
+     * Bulk version of {@link #setStoredSkinNameOfPlayer(String, String)}.
+     *
+     * @param skinNames lowercase player name to skin name
+     */
+    void setStoredSkinNamesOfPlayers(Map<String, String> skinNames);
+
     Optional<StoredProperty> getStoredSkinData(String skinName) throws Exception;
 
     void removeStoredSkinData(String skinName);
 
-    void setStoredSkinData(String skinName, StoredProperty storedProperty);
+    /**
+     * Inserts or overwrites the stored skin.
+     *
+     * @return true if the skin name was not stored before
+     */
+    boolean setStoredSkinData(String skinName, StoredProperty storedProperty);
+
+    /**
+     * Bulk version of {@link #setStoredSkinData(String, StoredProperty)}.
+     *
+     * @param storedProperties lowercase skin name to property
+     */
+    void setStoredSkinData(Map<String, StoredProperty> storedProperties);
 
-    Map<String, String> getStoredSkins(int offset);
+    /**
+     * Lists stored skins in name order, seeking past the given name instead of skipping over an offset.
+     * Honors {@link net.skinsrestorer.shared.storage.Config#CUSTOM_GUI_ONLY}.
+     *
+     * @param afterSkinName exclusive lower bound (lowercase), empty string to start at the first skin
+     * @param limit         maximum amount of skins to return
+     * @return lowercase skin name to skin value, in storage order
+     */
+    Map<String, String> getStoredSkinsAfter(String afterSkinName, int limit);
+
+    /**
+     * Same as {@link #getStoredSkinsAfter(String, int)}, but only reads the skin names, used to skip over skins.
+     *
+     * @param afterSkinName exclusive lower bound (lowercase), empty string to start at the first skin
+     * @param limit         maximum amount of skin names to return
+     * @return lowercase skin names, in storage order
+     */
+    List<String> getStoredSkinNamesAfter(String afterSkinName, int limit);
 
     Optional<Long> getStoredTimestamp(String skinName);
 
     void purgeStoredOldSkins(long targetPurgeTimestamp) throws StorageException;
 
+    /**
+     * @param playerName lowercase player name
+     * @return last known premium status of the name, regardless of its age
+     */
+    Optional<StoredPremiumStatus> getStoredPremiumStatus(String playerName);
+
+    void setStoredPremiumStatus(String playerName, StoredPremiumStatus premiumStatus);
+
+    /**
+     * @param hash hex encoded hash of the source (url or image) a skin was generated from
+     * @return skin generated from the source before
+     */
+    Optional<StoredProperty> getStoredGeneratedSkin(String hash);
+
+    void setStoredGeneratedSkin(String hash, StoredProperty storedProperty);
+
     @RequiredArgsConstructor
     @Getter
     class StoredProperty {
@@ -52,6 +105,20 @@ public interface StorageAdapter {
         private final long timestamp;
     }
 
+    @RequiredArgsConstructor
+    @Getter
+    class StoredPremiumStatus {
+        /**
+         * Dash-less uuid of the premium account, null if the name is not premium.
+         */
+        private final String uuid;
+        private final long timestamp;
+
+        public boolean isPremium() {
+            return uuid != null;
+        }
+    }
+
     class StorageException extends Exception {
         public StorageException(Throwable cause) {
             super(cause);
@@ -19,10 +19,11 @@
  */
 package net.skinsrestorer.shared.update;
 
-import com.google.gson.Gson;
 import lombok.Getter;
 import lombok.Setter;
 import net.skinsrestorer.shared.reflection.ReflectionUtil;
+import net.skinsrestorer.shared.utils.connections.HttpClient;
+import net.skinsrestorer.shared.utils.connections.ResponseParser;
 import net.skinsrestorer.shared.utils.log.SRLogLevel;
 import net.skinsrestorer.shared.utils.log.SRLogger;
 import org.inventivetalent.update.spiget.ResourceInfo;
@@ -30,9 +31,8 @@ import org.inventivetalent.update.spiget.ResourceVersion;
 import org.inventivetalent.update.spiget.UpdateCallback;
 import org.inventivetalent.update.spiget.comparator.VersionComparator;
 
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -44,6 +44,7 @@ public class UpdateChecker {
     public static final String RESOURCE_VERSION = "https://api.spiget.org/v2/resources/%s/versions/latest?ut=%s";
     private static final String LOG_ROW = "§a----------------------------------------------";
     protected final SRLogger log;
+    protected final HttpClient httpClient;
     @Getter
     protected final String userAgent;
     private final int resourceId;
@@ -53,22 +54,18 @@ public class UpdateChecker {
     @Getter
     private ResourceInfo latestResourceInfo;
 
-    public UpdateChecker(int resourceId, String currentVersion, SRLogger log, String userAgent) {
+    public UpdateChecker(int resourceId, String currentVersion, SRLogger log, String userAgent, HttpClient httpClient) {
         this.resourceId = resourceId;
         this.currentVersion = currentVersion;
         this.log = log;
         this.userAgent = userAgent;
+        this.httpClient = httpClient;
     }
 
     public void checkForUpdate(final UpdateCallback callback) {
         try {
-            HttpURLConnection connection = (HttpURLConnection) (new URL(String.format(RESOURCE_INFO, resourceId, System.currentTimeMillis()))).openConnection();
-            connection.setRequestProperty("User-Agent", userAgent);
-
-            latestResourceInfo = new Gson().fromJson(new InputStreamReader(connection.getInputStream()), ResourceInfo.class);
-            connection = (HttpURLConnection) new URL(String.format(RESOURCE_VERSION, resourceId, System.currentTimeMillis())).openConnection();
-            connection.setRequestProperty("User-Agent", userAgent);
-            latestResourceInfo.latestVersion = new Gson().fromJson(new InputStreamReader(connection.getInputStream()), ResourceVersion.class);
+            latestResourceInfo = ResponseParser.parse(readURL(String.format(RESOURCE_INFO, resourceId, System.currentTimeMillis())), ResourceInfo.class);
+            latestResourceInfo.latestVersion = ResponseParser.parse(readURL(String.format(RESOURCE_VERSION, resourceId, System.currentTimeMillis())), ResourceVersion.class);
 
             if (isVersionNewer(currentVersion, latestResourceInfo.latestVersion.name)) {
                 callback.updateAvailable(latestResourceInfo.latestVersion.name, "https://spigotmc.org/" + latestResourceInfo.file.url, !latestResourceInfo.external);
@@ -80,6 +77,15 @@ public class UpdateChecker {
         }
     }
 
+    protected HttpClient.HttpResponse readURL(String url) throws IOException {
+        HttpClient.HttpResponse response = httpClient.execute("GET", url, null, null, 10000, Collections.singletonMap("User-Agent", userAgent));
+
+        if (response.getStatusCode() >= 400)
+            throw new IOException("Server returned HTTP response code: " + response.getStatusCode() + " for URL: " + url);
+
+        return response;
+    }
+
     public List<String> getUpToDateMessages(String currentVersion, boolean proxyMode) {
         List<String> upToDateMessages = new LinkedList<>();
         fillHeader(upToDateMessages, proxyMode);
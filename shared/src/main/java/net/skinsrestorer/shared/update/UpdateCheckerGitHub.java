@@ -19,40 +19,30 @@
  */
 package net.skinsrestorer.shared.update;
 
-import com.google.gson.Gson;
 import net.skinsrestorer.shared.storage.Config;
+import net.skinsrestorer.shared.utils.connections.HttpClient;
+import net.skinsrestorer.shared.utils.connections.ResponseParser;
 import net.skinsrestorer.shared.utils.log.SRLogger;
 import org.inventivetalent.update.spiget.UpdateCallback;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.util.stream.Collectors;
-
 public class UpdateCheckerGitHub extends UpdateChecker {
     private static final String RESOURCE_ID = "SkinsRestorerX";
     private static final String RELEASES_URL_LATEST = "https://api.github.com/repos/SkinsRestorer/%s/releases/latest";
     private GitHubReleaseInfo releaseInfo;
 
-    public UpdateCheckerGitHub(int resourceId, String currentVersion, SRLogger log, String userAgent) {
-        super(resourceId, currentVersion, log, userAgent);
+    public UpdateCheckerGitHub(int resourceId, String currentVersion, SRLogger log, String userAgent, HttpClient httpClient) {
+        super(resourceId, currentVersion, log, userAgent, httpClient);
     }
 
     @Override
     public void checkForUpdate(final UpdateCallback callback) {
         try {
-            HttpURLConnection connection = (HttpURLConnection) new URL(String.format(RELEASES_URL_LATEST, RESOURCE_ID)).openConnection();
-            connection.setRequestProperty("User-Agent", userAgent);
+            HttpClient.HttpResponse response = readURL(String.format(RELEASES_URL_LATEST, RESOURCE_ID));
 
-            String body = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))
-                    .lines()
-                    .collect(Collectors.joining("\n"));
-            log.debug("Response body: " + body);
-            log.debug("Response code: " + connection.getResponseCode());
+            log.debug("Response body: " + response.getBodyString());
+            log.debug("Response code: " + response.getStatusCode());
 
-            releaseInfo = new Gson().fromJson(body, GitHubReleaseInfo.class);
+            releaseInfo = ResponseParser.parse(response, GitHubReleaseInfo.class);
 
             releaseInfo.assets.forEach(gitHubAssetInfo -> {
                 releaseInfo.latestDownloadURL = gitHubAssetInfo.browser_download_url;
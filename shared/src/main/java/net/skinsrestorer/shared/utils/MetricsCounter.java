@@ -25,17 +25,31 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public class MetricsCounter {
     private final Map<Service, AtomicInteger> map = new EnumMap<>(Service.class);
+    private final Map<Service, AtomicInteger> wins = new EnumMap<>(Service.class);
 
     public void increment(Service service) {
-        getOrCreate(service).incrementAndGet();
+        getOrCreate(map, service).incrementAndGet();
     }
 
     public int collect(Service service) {
-        return getOrCreate(service).getAndSet(0);
+        return getOrCreate(map, service).getAndSet(0);
     }
 
-    private AtomicInteger getOrCreate(Service service) {
-        return map.compute(service, (k, v) -> v == null ? new AtomicInteger() : v);
+    /**
+     * Counts a lookup that was answered by this service, when multiple services were asked.
+     */
+    public void incrementWins(Service service) {
+        getOrCreate(wins, service).incrementAndGet();
+    }
+
+    public int getWins(Service service) {
+        return getOrCreate(wins, service).get();
+    }
+
+    private AtomicInteger getOrCreate(Map<Service, AtomicInteger> counters, Service service) {
+        synchronized (counters) {
+            return counters.computeIfAbsent(service, k -> new AtomicInteger());
+        }
     }
 
     public int collectMineskinCalls() {
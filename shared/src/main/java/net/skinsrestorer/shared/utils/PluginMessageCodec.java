@@ -0,0 +1,261 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.utils;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary format of the data sent over the sr:messagechannel and sr:skinchange plugin channels.
+ * <p>
+ * Protocol versions:
+ * <ul>
+ *     <li>1 - returnSkins, serialized map of properties</li>
+ *     <li>2 - returnSkinsV2, GZIP compressed serialized map of texture values</li>
+ *     <li>3 - returnSkinsV3, length prefixed entries with raw texture bytes, optionally deflated</li>
+ *     <li>4 - returnSkinsV4, a page split into frames of the version 3 format, see {@link SkinPageAssembler}</li>
+ * </ul>
+ * Servers send the highest version they understand along with getSkins,
+ * proxies answer with the highest version both sides understand.
+ */
+public class PluginMessageCodec {
+    public static final int PROTOCOL_VERSION = 4;
+    // Layout of an encoded skin list, still the version 3 one, version 4 only splits it into frames
+    public static final int SKIN_LIST_FORMAT_VERSION = 3;
+    // Payload may not be larger than 32767 bytes -18 from channel name
+    public static final int MAX_PAYLOAD_SIZE = 32749;
+    private static final int MAX_DECODED_SIZE = 1024 * 1024;
+    private static final int FLAG_DEFLATED = 1;
+    private static final int VALUE_STRING = 0;
+    private static final int VALUE_BASE64 = 1;
+
+    private PluginMessageCodec() {
+    }
+
+    public static byte[] encodeSkinList(Map<String, String> skins) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+
+        try {
+            writeVarInt(out, skins.size());
+            for (Map.Entry<String, String> entry : skins.entrySet()) {
+                writeString(out, entry.getKey());
+
+                // Texture values are base64, sending the decoded bytes saves a quarter and compresses much better
+                byte[] raw = decodeBase64(entry.getValue());
+                if (raw != null) {
+                    out.writeByte(VALUE_BASE64);
+                    writeBytes(out, raw);
+                } else {
+                    out.writeByte(VALUE_STRING);
+                    writeString(out, entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            // Writing to memory never fails
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] data = body.toByteArray();
+        byte[] deflated = deflate(data);
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        DataOutputStream resultOut = new DataOutputStream(result);
+        try {
+            resultOut.writeByte(SKIN_LIST_FORMAT_VERSION);
+            if (deflated.length < data.length) {
+                resultOut.writeByte(FLAG_DEFLATED);
+                writeVarInt(resultOut, data.length);
+                resultOut.write(deflated);
+            } else {
+                resultOut.writeByte(0);
+                resultOut.write(data);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return result.toByteArray();
+    }
+
+    public static Map<String, String> decodeSkinList(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+
+        int version = in.readUnsignedByte();
+        if (version > SKIN_LIST_FORMAT_VERSION)
+            throw new IOException("Unsupported skin list version " + version);
+
+        int flags = in.readUnsignedByte();
+        if ((flags & FLAG_DEFLATED) != 0) {
+            int length = readVarInt(in);
+            byte[] deflated = new byte[in.available()];
+            in.readFully(deflated);
+
+            in = new DataInputStream(new ByteArrayInputStream(inflate(deflated, length)));
+        }
+
+        int count = readVarInt(in);
+        Map<String, String> skins = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = readString(in);
+            int type = in.readUnsignedByte();
+
+            if (type == VALUE_BASE64) {
+                skins.put(name, Base64.getEncoder().encodeToString(readBytes(in)));
+            } else if (type == VALUE_STRING) {
+                skins.put(name, readString(in));
+            } else {
+                throw new IOException("Unknown value type " + type);
+            }
+        }
+
+        return skins;
+    }
+
+    public static byte[] encodeSkinUpdate(String name, String value, String signature) {
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(b);
+
+        try {
+            out.writeUTF("SkinUpdate");
+
+            if (value != null) {
+                out.writeUTF(name);
+                out.writeUTF(value);
+                out.writeUTF(signature);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return b.toByteArray();
+    }
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new IOException("VarInt too big");
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0 || length > MAX_DECODED_SIZE)
+            throw new IOException("Invalid length " + length);
+
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static byte[] decodeBase64(String value) {
+        try {
+            byte[] raw = Base64.getDecoder().decode(value);
+
+            // Only use the raw form if it turns back into the exact same string
+            return Base64.getEncoder().encodeToString(raw).equals(value) ? raw : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int length) throws IOException {
+        if (length < 0 || length > MAX_DECODED_SIZE)
+            throw new IOException("Invalid length " + length);
+
+        Inflater inflater = new Inflater(true);
+        try {
+            // Raw deflate streams need one extra dummy byte to finish
+            inflater.setInput(Arrays.copyOf(data, data.length + 1));
+
+            byte[] result = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(result, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException("Truncated skin list");
+
+                read += n;
+            }
+
+            if (read != length)
+                throw new IOException("Truncated skin list");
+
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.utils;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.skinsrestorer.shared.storage.Config;
+import net.skinsrestorer.shared.utils.log.SRLogger;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread pools owned by SkinsRestorer, so skin lookups don't compete with other plugins for the platform scheduler.
+ * Every pool has a limited amount of threads and a bounded queue, tasks submitted to a full pool are rejected
+ * and the caller skips the work, e.g. a joining player keeps the skin they already have.
+ * Pools are created on first use, so they are sized by the loaded config.
+ */
+@RequiredArgsConstructor
+public class SRExecutors {
+    private static final long SHUTDOWN_TIMEOUT = 5;
+    private final SRLogger logger;
+    private final Map<Pool, BoundedExecutor> executors = new EnumMap<>(Pool.class);
+
+    public synchronized ExecutorService get(Pool pool) {
+        return executors.computeIfAbsent(pool, this::createExecutor);
+    }
+
+    /**
+     * Runs the task on the given pool.
+     *
+     * @return false if the pool is saturated and the task was rejected
+     */
+    public boolean execute(Pool pool, Runnable task) {
+        try {
+            get(pool).execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stops all pools, running tasks get a few seconds to finish before they are interrupted.
+     * Tasks submitted afterwards are rejected.
+     */
+    public synchronized void shutdown() {
+        executors.values().forEach(ThreadPoolExecutor::shutdown);
+
+        try {
+            for (BoundedExecutor executor : executors.values()) {
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS))
+                    executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executors.values().forEach(ThreadPoolExecutor::shutdownNow);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return queue depth and rejected tasks of each pool used so far
+     */
+    public synchronized String getStatus() {
+        StringJoiner joiner = new StringJoiner(", ");
+        executors.forEach((pool, executor) -> joiner.add(pool.getName() + " (" + executor.getActiveCount() + "/" + executor.getMaximumPoolSize()
+                + " active, " + executor.getQueue().size() + " queued, " + executor.rejected.get() + " rejected)"));
+
+        return joiner.length() == 0 ? "unused" : joiner.toString();
+    }
+
+    private BoundedExecutor createExecutor(Pool pool) {
+        ThreadFactory threadFactory = null;
+        if (Config.EXECUTORS_VIRTUAL_THREADS) {
+            threadFactory = createVirtualThreadFactory(pool);
+
+            if (threadFactory == null)
+                logger.warning("Virtual threads require Java 21 or newer, using platform threads for the " + pool.getName() + " pool.");
+        }
+
+        if (threadFactory == null) {
+            threadFactory = new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setName("SkinsRestorer-" + pool.getName() + "-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            };
+        }
+
+        // The config isn't loaded on servers in proxy mode
+        int threads = pool.getThreads() > 0 ? pool.getThreads() : pool.getDefaultThreads();
+        int queueSize = pool.getQueueSize() > 0 ? pool.getQueueSize() : pool.getDefaultQueueSize();
+
+        return new BoundedExecutor(pool, threads, queueSize, threadFactory);
+    }
+
+    /**
+     * Thread.ofVirtual() is only available on Java 21 and newer, so it is looked up reflectively.
+     *
+     * @return null if virtual threads are not available
+     */
+    private ThreadFactory createVirtualThreadFactory(Pool pool) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "SkinsRestorer-" + pool.getName() + "-", 1L);
+
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Pool {
+        /**
+         * Skin lookups of joining players.
+         */
+        LOGIN("Login", 8, 256),
+        /**
+         * Commands, GUI and other storage access.
+         */
+        STORAGE("Storage", 4, 256),
+        /**
+         * Hedged requests to skin services, the threads asking for them wait for their answer.
+         */
+        LOOKUP("Lookup", 8, 64),
+        /**
+         * Requests to MineSkin, which mostly wait for the MineSkin queue.
+         */
+        MINESKIN("MineSkin", 4, 64),
+        /**
+         * Work nobody waits for, like updating outdated skins and checking for updates.
+         */
+        BACKGROUND("Background", 2, 128);
+
+        private final String name;
+        private final int defaultThreads;
+        private final int defaultQueueSize;
+
+        private int getThreads() {
+            switch (this) {
+                case LOGIN:
+                    return Config.EXECUTORS_LOGIN_THREADS;
+                case STORAGE:
+                    return Config.EXECUTORS_STORAGE_THREADS;
+                case LOOKUP:
+                    return Config.EXECUTORS_LOOKUP_THREADS;
+                case MINESKIN:
+                    return Config.EXECUTORS_MINESKIN_THREADS;
+                default:
+                    return Config.EXECUTORS_BACKGROUND_THREADS;
+            }
+        }
+
+        private int getQueueSize() {
+            switch (this) {
+                case LOGIN:
+                    return Config.EXECUTORS_LOGIN_QUEUE;
+                case STORAGE:
+                    return Config.EXECUTORS_STORAGE_QUEUE;
+                case LOOKUP:
+                    return Config.EXECUTORS_LOOKUP_QUEUE;
+                case MINESKIN:
+                    return Config.EXECUTORS_MINESKIN_QUEUE;
+                default:
+                    return Config.EXECUTORS_BACKGROUND_QUEUE;
+            }
+        }
+    }
+
+    private class BoundedExecutor extends ThreadPoolExecutor {
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong lastWarning = new AtomicLong();
+
+        private BoundedExecutor(Pool pool, int threads, int queueSize, ThreadFactory threadFactory) {
+            super(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), threadFactory);
+            allowCoreThreadTimeOut(true);
+            setRejectedExecutionHandler((r, executor) -> {
+                if (executor.isShutdown())
+                    throw new RejectedExecutionException("SkinsRestorer " + pool.getName() + " pool is shut down");
+
+                rejected.incrementAndGet();
+
+                // Warn at most once a minute, the total count is shown in /sr status
+                long now = System.currentTimeMillis();
+                long last = lastWarning.get();
+                if (now - last > TimeUnit.MINUTES.toMillis(1) && lastWarning.compareAndSet(last, now))
+                    logger.warning("The " + pool.getName() + " pool is saturated, skipping tasks until it catches up.");
+
+                throw new RejectedExecutionException("SkinsRestorer " + pool.getName() + " pool is saturated");
+            });
+        }
+    }
+}
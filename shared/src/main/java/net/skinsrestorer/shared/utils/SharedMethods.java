@@ -54,6 +54,7 @@ public class SharedMethods {
         checker.setMojangAPI(mojangAPI);
         checker.checkServices();
         ServiceChecker.ServiceCheckResponse response = checker.getResponse();
+        response.seed(mojangAPI.getProviderChain());
 
         if (response.getWorkingUUID().get() == 0 || response.getWorkingProfile().get() == 0) {
             log.info("§c[§4Critical§c] ------------------[§2SkinsRestorer §cis §c§l§nOFFLINE§r§c] -------------------------");
@@ -0,0 +1,76 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.utils;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Puts GUI pages sent as multiple returnSkinsV4 frames back together.
+ * Every frame carries the sequence id of the page it belongs to, its index and whether it is the last frame.
+ * A newer sequence for the same player replaces an unfinished older one.
+ */
+public class SkinPageAssembler {
+    private static final long MAX_AGE = TimeUnit.SECONDS.toMillis(30);
+    private final Map<String, PendingPage> pendingPages = new ConcurrentHashMap<>();
+
+    /**
+     * @param playerName  player the page is for
+     * @param sequenceId  id of the page transfer
+     * @param frameIndex  index of this frame
+     * @param last        whether this is the last frame of the page
+     * @param frame       skins of this frame
+     * @return all skins of the page once every frame was received
+     */
+    public Optional<Map<String, String>> accept(String playerName, int sequenceId, int frameIndex, boolean last, Map<String, String> frame) {
+        long now = System.currentTimeMillis();
+        pendingPages.values().removeIf(page -> page.createdAt + MAX_AGE < now);
+
+        String key = playerName.toLowerCase(Locale.ROOT);
+        PendingPage page = pendingPages.compute(key, (k, existing) ->
+                existing == null || existing.sequenceId != sequenceId ? new PendingPage(sequenceId, now) : existing);
+
+        synchronized (page) {
+            page.frames.put(frameIndex, frame);
+            if (last)
+                page.frameCount = frameIndex + 1;
+
+            if (page.frameCount == -1 || page.frames.size() < page.frameCount)
+                return Optional.empty();
+        }
+
+        pendingPages.remove(key, page);
+
+        Map<String, String> skins = new TreeMap<>();
+        page.frames.values().forEach(skins::putAll);
+        return Optional.of(skins);
+    }
+
+    @RequiredArgsConstructor
+    private static class PendingPage {
+        private final int sequenceId;
+        private final long createdAt;
+        private final Map<Integer, Map<String, String>> frames = new TreeMap<>();
+        private int frameCount = -1;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.utils.connections;
+
+import com.google.gson.JsonSyntaxException;
+import net.skinsrestorer.api.exception.SkinRequestException;
+import net.skinsrestorer.shared.exception.NotPremiumExceptionShared;
+import net.skinsrestorer.shared.utils.connections.responses.uuid.MojangUUIDResponse;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects name to uuid lookups arriving within a few milliseconds
+ * and sends them to Mojang's bulk profile endpoint, which resolves up to 10 names per request.
+ * Bursts of more names are split into several requests, which are sent in parallel.
+ */
+public class BulkUUIDResolver {
+    private static final int MAX_NAMES_PER_REQUEST = 10;
+    private static final long COLLECT_TIME = 20;
+    // Batches are sent at once, so a caller at the back of a burst does not wait for all requests before it
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+    private final BulkRequest request;
+    private final int timeout;
+    // Lowercase name -> callers waiting for it, in order of arrival
+    private final Map<String, CompletableFuture<Optional<String>>> pending = new LinkedHashMap<>();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(MAX_PARALLEL_REQUESTS, (Runnable r) -> {
+        Thread t = new Thread(r);
+        t.setName("SkinsRestorer-BulkUUID-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean flushScheduled = false;
+
+    public BulkUUIDResolver(BulkRequest request, int timeout) {
+        this.request = request;
+        this.timeout = timeout;
+    }
+
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    /**
+     * @param playerName Mojang username of the player
+     * @return Dash-less UUID, or empty if Mojang could not be reached
+     * @throws SkinRequestException if the player is not premium
+     */
+    public Optional<String> resolve(String playerName) throws SkinRequestException {
+        CompletableFuture<Optional<String>> future;
+        synchronized (pending) {
+            future = pending.computeIfAbsent(playerName.toLowerCase(Locale.ROOT), k -> new CompletableFuture<>());
+
+            if (pending.size() >= MAX_NAMES_PER_REQUEST) {
+                executorService.execute(this::flush);
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                executorService.schedule(this::flush, COLLECT_TIME, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        try {
+            return future.get(timeout + COLLECT_TIME, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SkinRequestException)
+                throw (SkinRequestException) e.getCause();
+
+            return Optional.empty();
+        } catch (TimeoutException e) {
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        }
+    }
+
+    private void flush() {
+        while (true) {
+            Map<String, CompletableFuture<Optional<String>>> batch = new HashMap<>();
+            synchronized (pending) {
+                Iterator<Map.Entry<String, CompletableFuture<Optional<String>>>> iterator = pending.entrySet().iterator();
+                while (iterator.hasNext() && batch.size() < MAX_NAMES_PER_REQUEST) {
+                    Map.Entry<String, CompletableFuture<Optional<String>>> entry = iterator.next();
+                    batch.put(entry.getKey(), entry.getValue());
+                    iterator.remove();
+                }
+
+                if (batch.isEmpty()) {
+                    flushScheduled = false;
+                    return;
+                }
+            }
+
+            executorService.execute(() -> send(batch));
+        }
+    }
+
+    private void send(Map<String, CompletableFuture<Optional<String>>> batch) {
+        try {
+            MojangUUIDResponse[] profiles = ResponseParser.parse(request.post(ResponseParser.toJson(batch.keySet())), MojangUUIDResponse[].class);
+
+            if (profiles != null) {
+                for (MojangUUIDResponse profile : profiles) {
+                    if (profile.getName() == null || profile.getId() == null)
+                        continue;
+
+                    CompletableFuture<Optional<String>> future = batch.remove(profile.getName().toLowerCase(Locale.ROOT));
+                    if (future != null)
+                        future.complete(Optional.of(profile.getId()));
+                }
+            }
+
+            // Mojang leaves out names without a premium account
+            batch.values().forEach(future -> future.completeExceptionally(new NotPremiumExceptionShared()));
+        } catch (IOException | JsonSyntaxException e) {
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    @FunctionalInterface
+    public interface BulkRequest {
+        /**
+         * @param body JSON array of names
+         * @return response with a JSON array of the found profiles
+         */
+        HttpClient.HttpResponse post(String body) throws IOException;
+    }
+}
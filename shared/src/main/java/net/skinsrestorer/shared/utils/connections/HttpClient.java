@@ -0,0 +1,316 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.utils.connections;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client shared by all web services SkinsRestorer talks to.
+ * <p>
+ * Every response body, error responses included, is read to the end and closed.
+ * That allows the JDK to keep the connection alive and hand it (and its TLS session) to the next request to the same host,
+ * instead of doing a new handshake per request.
+ * The number of requests running at once per host is limited to the number of connections the JDK keeps alive.
+ */
+@RequiredArgsConstructor
+public class HttpClient {
+    // Same as the default of the http.maxConnections system property, more connections would not be kept alive anyway
+    private static final int MAX_CONNECTIONS_PER_HOST = 5;
+    // Every api response SkinsRestorer reads is a few kilobytes, anything this large is not a valid response
+    public static final int DEFAULT_MAX_BODY_SIZE = 1024 * 1024;
+    // Request threads are pooled, so are their read buffers
+    private static final ThreadLocal<byte[]> READ_BUFFERS = ThreadLocal.withInitial(() -> new byte[8192]);
+    private static final ThreadLocal<Abortable> ABORTABLES = new ThreadLocal<>();
+    private static final int MAX_HEADER_LINE_LENGTH = 8192;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final String userAgent;
+
+    public HttpResponse get(String url, int timeout) throws IOException {
+        return get(url, timeout, DEFAULT_MAX_BODY_SIZE, true);
+    }
+
+    public HttpResponse get(String url, int timeout, int maxBodySize, boolean followRedirects) throws IOException {
+        return execute("GET", url, null, null, timeout, Collections.emptyMap(), maxBodySize, followRedirects);
+    }
+
+    /**
+     * Requests the url from an address that was resolved and checked before, instead of resolving the host again,
+     * so a DNS answer that changed in between can't redirect the request. HTTPS certificates are still verified against the host of the url.
+     * Sent as a HTTP/1.0 request that doesn't follow redirects, the connection is not kept alive.
+     *
+     * @param address     resolved address of the host of the url
+     * @param url         http(s) url to request
+     * @param timeout     max milliseconds to connect and between reads
+     * @param maxBodySize max bytes of the response body to read
+     * @return status code and body of the response
+     * @throws IOException if the request could not be sent, the response is malformed or its body is larger than maxBodySize
+     */
+    public HttpResponse getFrom(InetAddress address, String url, int timeout, int maxBodySize) throws IOException {
+        URL parsedUrl = new URL(url);
+        int port = parsedUrl.getPort() == -1 ? parsedUrl.getDefaultPort() : parsedUrl.getPort();
+        String host = parsedUrl.getHost() + (parsedUrl.getPort() == -1 ? "" : ":" + parsedUrl.getPort());
+        String path = parsedUrl.getFile().isEmpty() ? "/" : parsedUrl.getFile();
+
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(address, port), timeout);
+            socket.setSoTimeout(timeout);
+
+            if (parsedUrl.getProtocol().equalsIgnoreCase("https")) {
+                // Handshake with the host name for SNI and certificate verification, on the socket connected to the checked address
+                SSLSocket sslSocket = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(socket, parsedUrl.getHost(), port, true);
+                SSLParameters parameters = sslSocket.getSSLParameters();
+                parameters.setEndpointIdentificationAlgorithm("HTTPS");
+                sslSocket.setSSLParameters(parameters);
+                socket = sslSocket;
+                sslSocket.startHandshake();
+            }
+
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + path + " HTTP/1.0\r\n"
+                    + "Host: " + host + "\r\n"
+                    + "User-Agent: " + userAgent + "\r\n"
+                    + "Connection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            String[] statusLine = readLine(in, url).split(" ", 3);
+            if (statusLine.length < 2 || !statusLine[0].startsWith("HTTP/"))
+                throw new IOException("Malformed response of " + url);
+
+            int statusCode;
+            long contentLength = -1;
+            try {
+                statusCode = Integer.parseInt(statusLine[1]);
+
+                // HTTP/1.0 responses are never chunked, the body is read until the connection is closed
+                String header;
+                while (!(header = readLine(in, url)).isEmpty()) {
+                    int colon = header.indexOf(':');
+                    if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Length"))
+                        contentLength = Long.parseLong(header.substring(colon + 1).trim());
+                }
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed response of " + url, e);
+            }
+
+            return new HttpResponse(statusCode, readFully(in, contentLength, maxBodySize, url));
+        } finally {
+            socket.close();
+        }
+    }
+
+    public HttpResponse post(String url, byte[] body, String contentType, int timeout) throws IOException {
+        return execute("POST", url, body, contentType, timeout, Collections.emptyMap());
+    }
+
+    public HttpResponse execute(String method, String url, byte[] body, String contentType, int timeout, Map<String, String> headers) throws IOException {
+        return execute(method, url, body, contentType, timeout, headers, DEFAULT_MAX_BODY_SIZE, true);
+    }
+
+    /**
+     * @param method      request method
+     * @param url         url to request
+     * @param body        request body, may be null
+     * @param contentType content type of the request body, may be null
+     * @param timeout     max milliseconds to wait for a free connection, to connect and between reads
+     * @param headers     additional request headers
+     * @param maxBodySize     max bytes of the response body to read
+     * @param followRedirects whether redirects are followed, if not the redirect response itself is returned
+     * @return status code and body of the response
+     * @throws IOException if the request could not be sent, the response could not be read or its body is larger than maxBodySize
+     */
+    public HttpResponse execute(String method, String url, byte[] body, String contentType, int timeout, Map<String, String> headers, int maxBodySize, boolean followRedirects) throws IOException {
+        URL parsedUrl = new URL(url);
+        Semaphore permits = hostPermits.computeIfAbsent(parsedUrl.getHost(), host -> new Semaphore(MAX_CONNECTIONS_PER_HOST));
+
+        try {
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS))
+                throw new IOException("Timed out waiting for a connection to " + parsedUrl.getHost());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a connection to " + parsedUrl.getHost(), e);
+        }
+
+        Abortable abortable = ABORTABLES.get();
+        HttpURLConnection con = null;
+        try {
+            con = (HttpURLConnection) parsedUrl.openConnection();
+            if (abortable != null)
+                abortable.setConnection(con);
+
+            con.setRequestMethod(method);
+            con.setInstanceFollowRedirects(followRedirects);
+            con.setRequestProperty("User-Agent", userAgent);
+            con.setConnectTimeout(timeout);
+            con.setReadTimeout(timeout);
+            headers.forEach(con::setRequestProperty);
+
+            if (body != null) {
+                if (contentType != null)
+                    con.setRequestProperty("Content-Type", contentType);
+
+                con.setDoOutput(true);
+                con.setFixedLengthStreamingMode(body.length);
+
+                try (OutputStream out = con.getOutputStream()) {
+                    out.write(body);
+                }
+            }
+
+            int statusCode = con.getResponseCode();
+            InputStream is = statusCode >= 400 ? con.getErrorStream() : con.getInputStream();
+
+            return new HttpResponse(statusCode, readFully(is, con.getContentLengthLong(), maxBodySize, url));
+        } finally {
+            if (abortable != null)
+                abortable.clearConnection(con);
+
+            permits.release();
+        }
+    }
+
+    private static byte[] readFully(InputStream is, long contentLength, int maxBodySize, String url) throws IOException {
+        if (is == null)
+            return new byte[0];
+
+        try (InputStream in = is) {
+            if (contentLength > maxBodySize)
+                throw new IOException("Response of " + url + " is larger than " + maxBodySize + " bytes");
+
+            // Content-Length is only a hint, the body is still counted while reading it
+            ByteArrayOutputStream out = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : 1024);
+            byte[] buffer = READ_BUFFERS.get();
+            int total = 0;
+
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+                if (total > maxBodySize)
+                    throw new IOException("Response of " + url + " is larger than " + maxBodySize + " bytes");
+
+                out.write(buffer, 0, read);
+            }
+
+            return out.toByteArray();
+        }
+    }
+
+    private static String readLine(InputStream in, String url) throws IOException {
+        StringBuilder line = new StringBuilder();
+
+        int read;
+        while ((read = in.read()) != '\n') {
+            if (read == -1)
+                throw new IOException("Response of " + url + " ended inside its headers");
+
+            if (line.length() >= MAX_HEADER_LINE_LENGTH)
+                throw new IOException("Response of " + url + " has a header line longer than " + MAX_HEADER_LINE_LENGTH + " characters");
+
+            if (read != '\r')
+                line.append((char) read);
+        }
+
+        return line.toString();
+    }
+
+    /**
+     * Lets another thread abort the requests of the thread it is bound to.
+     * Interrupting a thread does not stop it from waiting on a socket, disconnecting the connection does.
+     */
+    public static class Abortable {
+        private HttpURLConnection connection;
+        private boolean aborted;
+
+        /**
+         * Binds this to the current thread until {@link #unbind()} is called.
+         */
+        public void bind() {
+            ABORTABLES.set(this);
+        }
+
+        public static void unbind() {
+            ABORTABLES.remove();
+        }
+
+        /**
+         * Disconnects the running request, requests started after this fail right away.
+         */
+        public synchronized void abort() {
+            aborted = true;
+
+            if (connection != null)
+                connection.disconnect();
+        }
+
+        private synchronized void setConnection(HttpURLConnection connection) throws IOException {
+            if (aborted)
+                throw new IOException("Request was aborted");
+
+            this.connection = connection;
+        }
+
+        private synchronized void clearConnection(HttpURLConnection connection) {
+            if (this.connection == connection)
+                this.connection = null;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class HttpResponse {
+        private final int statusCode;
+        private final byte[] body;
+        @Getter(AccessLevel.NONE)
+        private String bodyString;
+
+        /**
+         * @return body decoded as UTF-8, decoded only once
+         */
+        public String getBodyString() {
+            if (bodyString == null)
+                bodyString = new String(body, StandardCharsets.UTF_8);
+
+            return bodyString;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.utils.connections;
+
+import net.skinsrestorer.api.exception.SkinRequestException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces concurrent requests for the same key into a single upstream call.
+ * The first caller executes the request, every caller arriving while it is running waits for and shares its result.
+ *
+ * @param <K> request key, e.g. a lowercase skin name
+ * @param <V> result type
+ */
+public class InFlightRequests<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V execute(K key, Request<V> request) throws SkinRequestException {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+
+        if (running != null)
+            return await(running);
+
+        try {
+            V value = request.call();
+            future.complete(value);
+            return value;
+        } catch (Throwable t) {
+            // Errors too, waiting callers would wait forever otherwise
+            future.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private V await(CompletableFuture<V> future) throws SkinRequestException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SkinRequestException)
+                throw (SkinRequestException) e.getCause();
+
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Request<V> {
+        V call() throws SkinRequestException;
+    }
+}
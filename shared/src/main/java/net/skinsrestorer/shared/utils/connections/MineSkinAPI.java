@@ -19,21 +19,22 @@
  */
 package net.skinsrestorer.shared.utils.connections;
 
-import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 import lombok.RequiredArgsConstructor;
-import lombok.val;
+import lombok.Setter;
 import net.skinsrestorer.api.SkinVariant;
 import net.skinsrestorer.api.SkinsRestorerAPI;
 import net.skinsrestorer.api.exception.SkinRequestException;
 import net.skinsrestorer.api.interfaces.IMineSkinAPI;
 import net.skinsrestorer.api.property.IProperty;
-import net.skinsrestorer.api.util.Pair;
 import net.skinsrestorer.shared.exception.SkinRequestExceptionShared;
 import net.skinsrestorer.shared.exception.TryAgainException;
 import net.skinsrestorer.shared.storage.Config;
 import net.skinsrestorer.shared.storage.Message;
+import net.skinsrestorer.shared.storage.adapter.StorageAdapter;
+import net.skinsrestorer.shared.utils.C;
 import net.skinsrestorer.shared.utils.MetricsCounter;
+import net.skinsrestorer.shared.utils.SRExecutors;
 import net.skinsrestorer.shared.utils.connections.responses.mineskin.MineSkinErrorDelayResponse;
 import net.skinsrestorer.shared.utils.connections.responses.mineskin.MineSkinErrorResponse;
 import net.skinsrestorer.shared.utils.connections.responses.mineskin.MineSkinUrlResponse;
@@ -41,182 +42,450 @@ import net.skinsrestorer.shared.utils.log.SRLogLevel;
 import net.skinsrestorer.shared.utils.log.SRLogger;
 import org.jetbrains.annotations.Nullable;
 
-import javax.net.ssl.HttpsURLConnection;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URLEncoder;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Optional;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Generates skins from image urls with <a href="https://mineskin.org/">MineSkin</a>.
+ * <p>
+ * Generations are queued per API key and only a few of them run at once per key, like MineSkin allows.
+ * Nothing waits on a thread: retries and requests MineSkin told us to hold back are scheduled for when they may be sent,
+ * so one slow or rate limited generation does not hold up the others.
+ * Generated skins are remembered by url (and image), generating them again takes no MineSkin request.
+ */
 @RequiredArgsConstructor
 public class MineSkinAPI implements IMineSkinAPI {
     private static final String NAMEMC_SKIN_URL = "https://namemc.com/skin/";
     private static final String NAMEMC_IMG_URL = "https://s.namemc.com/i/%s.png";
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(5);
+    private static final int CONCURRENT_JOBS_WITHOUT_KEY = 1;
+    private static final int CONCURRENT_JOBS_WITH_KEY = 2;
+    // Skin images are 64x64 pngs of a few kilobytes
+    private static final int MAX_IMAGE_SIZE = 64 * 1024;
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
     private final SRLogger logger;
     private final MetricsCounter metricsCounter;
-    private final Gson gson = new Gson();
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor((Runnable r) -> {
+    private final HttpClient httpClient;
+    private final RateLimiter rateLimiter;
+    private final SRExecutors executors;
+    private final Map<String, JobQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<IProperty>> generating = new ConcurrentHashMap<>();
+    // Remembers generated skins, set once the storage is ready
+    @Setter
+    private volatile StorageAdapter storageAdapter;
+    // Only used for timing, requests are sent by the MineSkin pool
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
         Thread t = new Thread(r);
         t.setName("SkinsRestorer-MineSkinAPI");
+        t.setDaemon(true);
         return t;
     });
 
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
     @Override
     public IProperty genSkin(String url, @Nullable SkinVariant skinVariant) throws SkinRequestException {
+        try {
+            return genSkinFuture(url, skinVariant).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SkinRequestException) {
+                throw new SkinRequestExceptionShared(e.getCause());
+            } else {
+                throw new SkinRequestExceptionShared(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Queues a skin generation, unless the same url (or image) was generated before.
+     *
+     * @param url         pointing to a skin image url
+     * @param skinVariant can be null, steve or slim
+     * @return future completed with the generated property, or exceptionally with a {@link SkinRequestException}
+     */
+    public CompletableFuture<IProperty> genSkinFuture(String url, @Nullable SkinVariant skinVariant) {
         url = url.startsWith(NAMEMC_SKIN_URL) ? NAMEMC_IMG_URL.replace("%s", url.substring(24)) : url; // Fix NameMC skins
-        AtomicInteger failedAttempts = new AtomicInteger(0);
+        String variant = skinVariant != null ? skinVariant.name().toLowerCase() : "";
+
+        Job job;
+        try {
+            job = new Job(url, variant, ("url=" + URLEncoder.encode(url, "UTF-8") + (variant.isEmpty() ? "" : "&variant=" + variant)).getBytes(StandardCharsets.UTF_8));
+        } catch (UnsupportedEncodingException e) {
+            CompletableFuture<IProperty> future = new CompletableFuture<>();
+            future.completeExceptionally(new SkinRequestExceptionShared(Message.ERROR_INVALID_URLSKIN));
+            return future;
+        }
 
-        do {
+        // Generations of the same url running at once share one job
+        String urlHash = hash(("url:" + normalizeUrl(url) + "|" + variant).getBytes(StandardCharsets.UTF_8));
+        CompletableFuture<IProperty> running = generating.putIfAbsent(urlHash, job.future);
+        if (running != null)
+            return running;
+
+        job.hashes.add(urlHash);
+        job.future.whenComplete((property, throwable) -> generating.remove(urlHash, job.future));
+        boolean accepted = executors.execute(SRExecutors.Pool.MINESKIN, () -> {
             try {
-                return genSkinFuture(url, skinVariant).join();
-            } catch (CompletionException e) {
-                if (e.getCause() instanceof TryAgainException) {
-                    failedAttempts.incrementAndGet();
-                } else if (e.getCause() instanceof SkinRequestException) {
-                    throw new SkinRequestExceptionShared(e.getCause());
-                } else {
-                    throw new SkinRequestExceptionShared(e.getMessage());
+                lookupOrQueue(job);
+            } catch (Exception e) {
+                job.future.completeExceptionally(e);
+            }
+        });
+        if (!accepted)
+            job.future.completeExceptionally(new SkinRequestExceptionShared(Message.WAIT_A_MINUTE));
+
+        return job.future;
+    }
+
+    /**
+     * Completes the job with a skin generated from the same url or image before, or queues it.
+     */
+    private void lookupOrQueue(Job job) {
+        StorageAdapter adapter = storageAdapter;
+        if (adapter != null) {
+            // The image behind an url can change, so skins remembered by url are only reused for a while
+            long urlExpiry = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(Config.MINESKIN_URL_CACHE_EXPIRES_AFTER);
+            Optional<StorageAdapter.StoredProperty> generated = adapter.getStoredGeneratedSkin(job.hashes.get(0))
+                    .filter(storedProperty -> storedProperty.getTimestamp() > urlExpiry);
+
+            if (!generated.isPresent() && Config.MINESKIN_HASH_IMAGES) {
+                Optional<String> imageHash = hashImage(job);
+                if (imageHash.isPresent()) {
+                    generated = adapter.getStoredGeneratedSkin(imageHash.get());
+                    job.hashes.add(imageHash.get());
+
+                    // Known from now on by this url as well, the image was just checked
+                    generated.ifPresent(storedProperty -> adapter.setStoredGeneratedSkin(job.hashes.get(0),
+                            new StorageAdapter.StoredProperty(storedProperty.getValue(), storedProperty.getSignature(), System.currentTimeMillis())));
                 }
             }
-        } while (failedAttempts.get() < 5);
 
-        throw new SkinRequestExceptionShared(Message.ERROR_MS_API_FAILED);
+            if (generated.isPresent()) {
+                logger.debug("MineSkinAPI: Using skin generated before for: " + job.url);
+                job.future.complete(SkinsRestorerAPI.getApi().createPlatformProperty(IProperty.TEXTURES_NAME,
+                        generated.get().getValue(), generated.get().getSignature()));
+                return;
+            }
+        }
+
+        JobQueue queue = queues.computeIfAbsent(Config.MINESKIN_API_KEY, JobQueue::new);
+        synchronized (queue) {
+            queue.pending.addLast(job);
+        }
+        dispatch(queue);
     }
 
-    public CompletableFuture<IProperty> genSkinFuture(String url, @Nullable SkinVariant skinVariant) {
-        return CompletableFuture.supplyAsync(() -> {
-            String skinVariantString = skinVariant != null ? "&variant=" + skinVariant.name().toLowerCase() : "";
+    /**
+     * Downloads the image, so the same image is recognized behind a different url.
+     * Only allowed skin urls of public hosts are downloaded, from the address that was checked, redirects are not followed.
+     *
+     * @return hash of the image, empty if it may not or could not be downloaded or is no png
+     */
+    private Optional<String> hashImage(Job job) {
+        Optional<InetAddress> address = C.allowedSkinUrl(job.url) ? resolvePublicAddress(job.url) : Optional.empty();
+        if (!address.isPresent()) {
+            logger.debug("MineSkinAPI: Not downloading " + job.url + " to hash it, it is no allowed public url");
+            return Optional.empty();
+        }
 
-            try {
-                val response = queryURL("url=" + URLEncoder.encode(url, "UTF-8") + skinVariantString);
-                logger.debug("MineSkinAPI: Response: " + response);
-                if (!response.isPresent()) // API time out
-                    throw new SkinRequestExceptionShared(Message.ERROR_UPDATING_SKIN);
-
-                switch (response.get().getLeft()) {
-                    case 200:
-                        MineSkinUrlResponse urlResponse = gson.fromJson(response.get().getRight(), MineSkinUrlResponse.class);
-                        return SkinsRestorerAPI.getApi().createPlatformProperty(IProperty.TEXTURES_NAME,
-                                urlResponse.getData().getTexture().getValue(),
-                                urlResponse.getData().getTexture().getSignature());
-                    case 500:
-                    case 400:
-                        MineSkinErrorResponse errorResponse = gson.fromJson(response.get().getRight(), MineSkinErrorResponse.class);
-                        String error = errorResponse.getError();
-                        switch (error) {
-                            case "Failed to generate skin data":
-                            case "Failed to change skin":
-                                logger.debug("[ERROR] MineSkin " + error + ", trying again... ");
-                                TimeUnit.SECONDS.sleep(5);
-
-                                throw new TryAgainException(); // try again
-                            case "No accounts available":
-                                logger.debug("[ERROR] MineSkin " + error + " for: " + url);
-
-                                throw new SkinRequestExceptionShared(Message.ERROR_MS_FULL);
-                            default:
-                                logger.debug("[ERROR] MineSkin Failed! Reason: " + error);
-                                throw new SkinRequestExceptionShared(Message.ERROR_INVALID_URLSKIN);
-                        }
-                    case 403:
-                        MineSkinErrorResponse errorResponse2 = gson.fromJson(response.get().getRight(), MineSkinErrorResponse.class);
-                        String errorCode2 = errorResponse2.getErrorCode();
-                        String error2 = errorResponse2.getError();
-                        if (errorCode2.equals("invalid_api_key")) {
-                            logger.severe("[ERROR] MineSkin API key is not invalid! Reason: " + error2);
-                            switch (error2) {
-                                case "Invalid API Key":
-                                    logger.severe("The API Key provided is not registered on MineSkin! Please empty MineskinAPIKey in plugins/SkinsRestorer/config.yml and run /sr reload");
-                                    break;
-                                case "Client not allowed":
-                                    logger.severe("This server ip is not on the apikey allowed IPs list!");
-                                    break;
-                                case "Origin not allowed":
-                                    logger.severe("This server Origin is not on the apikey allowed Origins list!");
-                                    break;
-                                case "Agent not allowed":
-                                    logger.severe("SkinsRestorer's agent \"SkinsRestorer\" is not on the apikey allowed agents list!");
-                                    break;
+        try {
+            HttpClient.HttpResponse response = httpClient.getFrom(address.get(), job.url, 10000, MAX_IMAGE_SIZE);
+
+            if (response.getStatusCode() != 200 || !isPng(response.getBody()))
+                return Optional.empty();
+
+            // Hash the image hash again together with the variant, the variant changes the generated skin
+            return Optional.of(hash(("png:" + hash(response.getBody()) + "|" + job.variant).getBytes(StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            logger.debug("MineSkinAPI: Could not download " + job.url + " to hash it: " + e.getLocalizedMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Resolves the host of the url once, the download has to connect to the returned address instead of resolving it again.
+     *
+     * @return an address of the host if the url is http(s) and its host only resolves to public addresses,
+     * so the server is not made to request its own network or cloud metadata services
+     */
+    private static Optional<InetAddress> resolvePublicAddress(String url) {
+        try {
+            URI uri = new URI(url);
+            String scheme = uri.getScheme();
+            if (uri.getHost() == null || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme)))
+                return Optional.empty();
+
+            InetAddress[] addresses = InetAddress.getAllByName(uri.getHost());
+            for (InetAddress address : addresses) {
+                if (address.isLoopbackAddress() || address.isSiteLocalAddress() || address.isLinkLocalAddress()
+                        || address.isAnyLocalAddress() || address.isMulticastAddress())
+                    return Optional.empty();
+
+                byte[] bytes = address.getAddress();
+                // IPv6 unique local addresses (fc00::/7)
+                if (bytes.length == 16 && (bytes[0] & 0xFE) == 0xFC)
+                    return Optional.empty();
+
+                // Carrier grade NAT (100.64.0.0/10), cloud metadata services (169.254.169.254) are link local already
+                if (bytes.length == 4 && (bytes[0] & 0xFF) == 100 && (bytes[1] & 0xC0) == 64)
+                    return Optional.empty();
+            }
+
+            return Optional.of(addresses[0]);
+        } catch (URISyntaxException | UnknownHostException e) {
+            return Optional.empty();
+        }
+    }
+
+    private static boolean isPng(byte[] body) {
+        if (body.length < PNG_SIGNATURE.length)
+            return false;
+
+        for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+            if (body[i] != PNG_SIGNATURE[i])
+                return false;
+        }
+
+        return true;
+    }
+
+    private void storeGenerated(Job job, IProperty property) {
+        StorageAdapter adapter = storageAdapter;
+        if (adapter == null)
+            return;
+
+        StorageAdapter.StoredProperty storedProperty = new StorageAdapter.StoredProperty(property.getValue(), property.getSignature(), System.currentTimeMillis());
+        for (String hash : job.hashes) {
+            adapter.setStoredGeneratedSkin(hash, storedProperty);
+        }
+    }
+
+    /**
+     * Urls differing only in case of scheme and host, default port or fragment point to the same image.
+     */
+    private static String normalizeUrl(String url) {
+        try {
+            URI uri = new URI(url.trim()).normalize();
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if ((scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443))
+                port = -1;
+
+            return scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT) + (port == -1 ? "" : ":" + port)
+                    + (uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath())
+                    + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        } catch (URISyntaxException | NullPointerException e) {
+            return url.trim();
+        }
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+                hex.append(String.format("%02x", b));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // Every JVM has SHA-256
+        }
+    }
+
+    /**
+     * Starts as many pending jobs of the queue as its key allows right now,
+     * and schedules itself again if MineSkin asked to hold back.
+     */
+    private void dispatch(JobQueue queue) {
+        synchronized (queue) {
+            while (queue.running < queue.maxRunning && !queue.pending.isEmpty()) {
+                long delay = queue.notBefore - System.currentTimeMillis();
+                if (delay > 0) {
+                    if (!queue.dispatchScheduled) {
+                        queue.dispatchScheduled = true;
+                        scheduler.schedule(() -> {
+                            synchronized (queue) {
+                                queue.dispatchScheduled = false;
                             }
-                            throw new SkinRequestExceptionShared("Invalid Mineskin API key!, nag the server owner about this!");
-                        }
-                    case 429:
-                        MineSkinErrorDelayResponse errorDelayResponse = gson.fromJson(response.get().getRight(), MineSkinErrorDelayResponse.class);
-                        // If "Too many requests"
-                        if (errorDelayResponse.getDelay() != null) {
-                            TimeUnit.SECONDS.sleep(errorDelayResponse.getDelay());
-                        } else if (errorDelayResponse.getNextRequest() != null) {
-                            Instant nextRequestInstant = Instant.ofEpochSecond(errorDelayResponse.getNextRequest());
-                            int delay = (int) Duration.between(Instant.now(), nextRequestInstant).getSeconds();
-
-                            if (delay > 0)
-                                TimeUnit.SECONDS.sleep(delay);
-                        } else { // Should normally not happen
-                            TimeUnit.SECONDS.sleep(2);
-                        }
+                            dispatch(queue);
+                        }, delay, TimeUnit.MILLISECONDS);
+                    }
+                    return;
+                }
+
+                Job job = queue.pending.pollFirst();
 
-                        throw new TryAgainException(); // try again after nextRequest
+                // Fail right away instead of piling up jobs while the configured rate limit is reached
+                long waitTime = rateLimiter.reserve(MetricsCounter.Service.MINE_SKIN);
+                if (waitTime < 0) {
+                    job.future.completeExceptionally(new SkinRequestExceptionShared(Message.WAIT_A_MINUTE));
+                    continue;
                 }
-            } catch (SkinRequestException | TryAgainException e) {
-                throw new CompletionException(e);
-            } catch (IOException e) {
-                logger.debug(SRLogLevel.WARNING, "[ERROR] MineSkin Failed! IOException (connection/disk): (" + url + ") " + e.getLocalizedMessage());
-                throw new CompletionException(new SkinRequestExceptionShared(Message.ERROR_MS_FULL));
-            } catch (JsonSyntaxException e) {
-                logger.debug(SRLogLevel.WARNING, "[ERROR] MineSkin Failed! JsonSyntaxException (encoding): (" + url + ") " + e.getLocalizedMessage());
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
+
+                queue.running++;
+                scheduler.schedule(() -> {
+                    if (!executors.execute(SRExecutors.Pool.MINESKIN, () -> run(queue, job))) {
+                        job.future.completeExceptionally(new SkinRequestExceptionShared(Message.WAIT_A_MINUTE));
+                        synchronized (queue) {
+                            queue.running--;
+                        }
+                        dispatch(queue);
+                    }
+                }, waitTime, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void run(JobQueue queue, Job job) {
+        try {
+            IProperty property = generate(queue, job);
+            storeGenerated(job, property);
+            job.future.complete(property);
+        } catch (TryAgainException e) {
+            retry(queue, job, e.getDelay());
+        } catch (SkinRequestException e) {
+            job.future.completeExceptionally(e);
+        } catch (IOException e) {
+            logger.debug(SRLogLevel.WARNING, "[ERROR] MineSkin Failed! IOException (connection/disk): (" + job.url + ") " + e.getLocalizedMessage());
+            job.future.completeExceptionally(new SkinRequestExceptionShared(Message.ERROR_MS_FULL));
+        } catch (JsonSyntaxException e) {
+            logger.debug(SRLogLevel.WARNING, "[ERROR] MineSkin Failed! JsonSyntaxException (encoding): (" + job.url + ") " + e.getLocalizedMessage());
+            job.future.completeExceptionally(new SkinRequestExceptionShared(Message.ERROR_MS_API_FAILED));
+        } catch (Exception e) {
+            job.future.completeExceptionally(e);
+        } finally {
+            synchronized (queue) {
+                queue.running--;
             }
+            dispatch(queue);
+        }
+    }
+
+    private void retry(JobQueue queue, Job job, long delay) {
+        if (++job.attempts >= MAX_ATTEMPTS) {
+            logger.debug("[ERROR] MineSkin Failed! Could not generate skin url: " + job.url);
+            job.future.completeExceptionally(new SkinRequestExceptionShared(Message.ERROR_MS_API_FAILED));
+            return;
+        }
 
-            // throw exception after all tries have failed
-            logger.debug("[ERROR] MineSkin Failed! Could not generate skin url: " + url);
-            throw new CompletionException(new SkinRequestExceptionShared(Message.ERROR_MS_API_FAILED));
-        }, executorService);
+        // Retries go before jobs queued in the meantime
+        scheduler.schedule(() -> {
+            synchronized (queue) {
+                queue.pending.addFirst(job);
+            }
+            dispatch(queue);
+        }, delay, TimeUnit.MILLISECONDS);
     }
 
-    private Optional<Pair<Integer, String>> queryURL(String query) throws IOException {
+    private IProperty generate(JobQueue queue, Job job) throws SkinRequestException, TryAgainException, IOException {
+        Optional<HttpClient.HttpResponse> response = queryURL(job.payload, queue.apiKey);
+        if (Config.DEBUG)
+            response.ifPresent(r -> logger.debug("MineSkinAPI: Response: " + r.getStatusCode() + " " + r.getBodyString()));
+        if (!response.isPresent()) // API time out
+            throw new SkinRequestExceptionShared(Message.ERROR_UPDATING_SKIN);
+
+        switch (response.get().getStatusCode()) {
+            case 200:
+                MineSkinUrlResponse urlResponse = ResponseParser.parse(response.get(), MineSkinUrlResponse.class);
+                return SkinsRestorerAPI.getApi().createPlatformProperty(IProperty.TEXTURES_NAME,
+                        urlResponse.getData().getTexture().getValue(),
+                        urlResponse.getData().getTexture().getSignature());
+            case 500:
+            case 400:
+                MineSkinErrorResponse errorResponse = ResponseParser.parse(response.get(), MineSkinErrorResponse.class);
+                String error = errorResponse.getError();
+                switch (error) {
+                    case "Failed to generate skin data":
+                    case "Failed to change skin":
+                        logger.debug("[ERROR] MineSkin " + error + ", trying again... ");
+
+                        throw new TryAgainException(RETRY_DELAY);
+                    case "No accounts available":
+                        logger.debug("[ERROR] MineSkin " + error + " for: " + job.url);
+
+                        throw new SkinRequestExceptionShared(Message.ERROR_MS_FULL);
+                    default:
+                        logger.debug("[ERROR] MineSkin Failed! Reason: " + error);
+                        throw new SkinRequestExceptionShared(Message.ERROR_INVALID_URLSKIN);
+                }
+            case 403:
+                MineSkinErrorResponse errorResponse2 = ResponseParser.parse(response.get(), MineSkinErrorResponse.class);
+                String errorCode2 = errorResponse2.getErrorCode();
+                String error2 = errorResponse2.getError();
+                if (errorCode2.equals("invalid_api_key")) {
+                    logger.severe("[ERROR] MineSkin API key is not invalid! Reason: " + error2);
+                    switch (error2) {
+                        case "Invalid API Key":
+                            logger.severe("The API Key provided is not registered on MineSkin! Please empty MineskinAPIKey in plugins/SkinsRestorer/config.yml and run /sr reload");
+                            break;
+                        case "Client not allowed":
+                            logger.severe("This server ip is not on the apikey allowed IPs list!");
+                            break;
+                        case "Origin not allowed":
+                            logger.severe("This server Origin is not on the apikey allowed Origins list!");
+                            break;
+                        case "Agent not allowed":
+                            logger.severe("SkinsRestorer's agent \"SkinsRestorer\" is not on the apikey allowed agents list!");
+                            break;
+                    }
+                    throw new SkinRequestExceptionShared("Invalid Mineskin API key!, nag the server owner about this!");
+                }
+            case 429:
+                MineSkinErrorDelayResponse errorDelayResponse = ResponseParser.parse(response.get(), MineSkinErrorDelayResponse.class);
+                // If "Too many requests", hold back all jobs of this key until MineSkin accepts them again
+                long notBefore;
+                if (errorDelayResponse.getDelay() != null) {
+                    notBefore = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(errorDelayResponse.getDelay());
+                } else if (errorDelayResponse.getNextRequest() != null) {
+                    notBefore = TimeUnit.SECONDS.toMillis(errorDelayResponse.getNextRequest());
+                } else { // Should normally not happen
+                    notBefore = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(2);
+                }
+
+                synchronized (queue) {
+                    queue.notBefore = Math.max(queue.notBefore, notBefore);
+                }
+
+                throw new TryAgainException(0); // try again after nextRequest
+        }
+
+        // throw exception after all tries have failed
+        logger.debug("[ERROR] MineSkin Failed! Could not generate skin url: " + job.url);
+        throw new SkinRequestExceptionShared(Message.ERROR_MS_API_FAILED);
+    }
+
+    /**
+     * Attempts are sent through the shared {@link HttpClient}, so a retry reuses the kept alive connection of the previous attempt.
+     *
+     * @param payload url encoded form, encoded once per job
+     */
+    private Optional<HttpClient.HttpResponse> queryURL(byte[] payload, String apiKey) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Accept", "application/json");
+        if (!apiKey.isEmpty())
+            headers.put("Authorization", "Bearer " + apiKey);
+
         for (int i = 0; i < 3; i++) { // try 3 times, if server not responding
             try {
                 metricsCounter.increment(MetricsCounter.Service.MINE_SKIN);
-                HttpsURLConnection con = (HttpsURLConnection) new URL("https://api.mineskin.org/generate/url/").openConnection();
-
-                con.setRequestMethod("POST");
-                con.setRequestProperty("Content-length", String.valueOf(query.length()));
-                con.setRequestProperty("Accept", "application/json");
-                con.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-                con.setRequestProperty("User-Agent", "SkinsRestorer");
-                con.setConnectTimeout(90000);
-                con.setReadTimeout(90000);
-                con.setDoOutput(true);
-                con.setDoInput(true);
-
-                if (!Config.MINESKIN_API_KEY.isEmpty())
-                    con.setRequestProperty("Authorization", "Bearer " + Config.MINESKIN_API_KEY);
-
-                DataOutputStream output = new DataOutputStream(con.getOutputStream());
-                output.writeBytes(query);
-                output.close();
-                StringBuilder outStr = new StringBuilder();
-                InputStream is;
-
-                try {
-                    is = con.getInputStream();
-                } catch (Exception e) {
-                    is = con.getErrorStream();
-                }
 
-                try (DataInputStream input = new DataInputStream(is)) {
-                    for (int c = input.read(); c != -1; c = input.read())
-                        outStr.append((char) c);
-                }
+                HttpClient.HttpResponse response = httpClient.execute("POST", "https://api.mineskin.org/generate/url/",
+                        payload, "application/x-www-form-urlencoded; charset=UTF-8", 90000, headers);
 
-                return Optional.of(Pair.of(con.getResponseCode(), outStr.toString()));
+                return Optional.of(response);
             } catch (IOException e) {
                 if (i == 2)
                     throw e;
@@ -226,4 +495,38 @@ public class MineSkinAPI implements IMineSkinAPI {
 
         return Optional.empty();
     }
+
+    private static class Job {
+        private final String url;
+        private final String variant;
+        private final byte[] payload;
+        private final CompletableFuture<IProperty> future = new CompletableFuture<>();
+        // Hashes the generated skin is stored under, the url hash first
+        private final List<String> hashes = new ArrayList<>(2);
+        private int attempts;
+
+        private Job(String url, String variant, byte[] payload) {
+            this.url = url;
+            this.variant = variant;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * Jobs of one API key, guarded by its own monitor.
+     */
+    private static class JobQueue {
+        private final String apiKey;
+        private final int maxRunning;
+        private final Deque<Job> pending = new ArrayDeque<>();
+        private int running;
+        // Epoch millis before which MineSkin does not accept requests of this key
+        private long notBefore;
+        private boolean dispatchScheduled;
+
+        private JobQueue(String apiKey) {
+            this.apiKey = apiKey;
+            this.maxRunning = apiKey.isEmpty() ? CONCURRENT_JOBS_WITHOUT_KEY : CONCURRENT_JOBS_WITH_KEY;
+        }
+    }
 }
@@ -19,18 +19,17 @@
  */
 package net.skinsrestorer.shared.utils.connections;
 
-import com.google.gson.Gson;
 import lombok.RequiredArgsConstructor;
 import net.skinsrestorer.api.SkinsRestorerAPI;
 import net.skinsrestorer.api.exception.NotPremiumException;
 import net.skinsrestorer.api.exception.SkinRequestException;
 import net.skinsrestorer.api.interfaces.IMojangAPI;
 import net.skinsrestorer.api.property.IProperty;
-import net.skinsrestorer.api.util.Pair;
 import net.skinsrestorer.shared.exception.NotPremiumExceptionShared;
 import net.skinsrestorer.shared.exception.SkinRequestExceptionShared;
 import net.skinsrestorer.shared.utils.C;
 import net.skinsrestorer.shared.utils.MetricsCounter;
+import net.skinsrestorer.shared.utils.SRExecutors;
 import net.skinsrestorer.shared.utils.connections.responses.AshconResponse;
 import net.skinsrestorer.shared.utils.connections.responses.profile.MinetoolsProfileResponse;
 import net.skinsrestorer.shared.utils.connections.responses.profile.MojangProfileResponse;
@@ -38,19 +37,14 @@ import net.skinsrestorer.shared.utils.connections.responses.profile.PropertyResp
 import net.skinsrestorer.shared.utils.connections.responses.uuid.MinetoolsUUIDResponse;
 import net.skinsrestorer.shared.utils.connections.responses.uuid.MojangUUIDResponse;
 
-import javax.net.ssl.HttpsURLConnection;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
-@RequiredArgsConstructor
 public class MojangAPI implements IMojangAPI {
     private static final String UUID_MOJANG = "https://api.mojang.com/users/profiles/minecraft/%playerName%";
+    private static final String UUID_MOJANG_BULK = "https://api.mojang.com/profiles/minecraft";
     private static final String UUID_MINETOOLS = "https://api.minetools.eu/uuid/%playerName%";
 
     private static final String ASHCON = "https://api.ashcon.app/mojang/v2/user/%uuidOrName%";
@@ -58,6 +52,37 @@ public class MojangAPI implements IMojangAPI {
     private static final String PROFILE_MINETOOLS = "https://api.minetools.eu/profile/%uuid%";
 
     private final MetricsCounter metricsCounter;
+    private final HttpClient httpClient;
+    private final RateLimiter rateLimiter;
+    private final ProviderChain providerChain;
+    private final BulkUUIDResolver bulkUUIDResolver;
+    private final InFlightRequests<String, String> uuidRequests = new InFlightRequests<>();
+
+    public MojangAPI(MetricsCounter metricsCounter, HttpClient httpClient, RateLimiter rateLimiter, SRExecutors executors) {
+        this.metricsCounter = metricsCounter;
+        this.httpClient = httpClient;
+        this.rateLimiter = rateLimiter;
+        this.providerChain = new ProviderChain(metricsCounter, rateLimiter, executors);
+        this.bulkUUIDResolver = new BulkUUIDResolver(body -> postURL(UUID_MOJANG_BULK, body, MetricsCounter.Service.MOJANG, 5000), 5000);
+    }
+
+    public ProviderChain getProviderChain() {
+        return providerChain;
+    }
+
+    public void shutdown() {
+        bulkUUIDResolver.shutdown();
+    }
+
+    /**
+     * Used by background work to leave the rate limits to players,
+     * it only sends lookups while at least one skin service can take a request right away.
+     */
+    public boolean canLookupWithoutWaiting() {
+        return rateLimiter.canAcquireNow(MetricsCounter.Service.ASHCON)
+                || rateLimiter.canAcquireNow(MetricsCounter.Service.MOJANG)
+                || rateLimiter.canAcquireNow(MetricsCounter.Service.MINE_TOOLS);
+    }
 
     /**
      * Get the skin property from a single request
@@ -79,16 +104,17 @@ public class MojangAPI implements IMojangAPI {
             throw new NotPremiumExceptionShared(); //todo: throw a different error?
         }
 
-        final Optional<IProperty> skin = getProfileAshcon(nameOrUuid);
-        if (skin.isPresent()) {
-            return skin;
-        } else {
-            if (!isUuid) {
-                nameOrUuid = getUUIDStartMojang(nameOrUuid);
-            }
-
-            return getProfileStartMojang(nameOrUuid);
-        }
+        return providerChain.lookup(
+                providerChain.provider(MetricsCounter.Service.ASHCON, () -> getProfileAshcon(nameOrUuid)),
+                providerChain.provider(MetricsCounter.Service.MOJANG, () -> {
+                    Optional<String> uuid = isUuid ? Optional.of(nameOrUuid) : getUUIDMojangBulk(nameOrUuid);
+                    return uuid.isPresent() ? getProfileMojang(uuid.get()) : Optional.empty();
+                }),
+                providerChain.provider(MetricsCounter.Service.MINE_TOOLS, () -> {
+                    Optional<String> uuid = isUuid ? Optional.of(nameOrUuid) : getUUIDMinetools(nameOrUuid);
+                    return uuid.isPresent() ? getProfileMinetools(uuid.get()) : Optional.empty();
+                })
+        );
     }
 
     /**
@@ -104,25 +130,11 @@ public class MojangAPI implements IMojangAPI {
             throw new NotPremiumExceptionShared();
         }
 
-        Optional<String> ashcon = getUUIDAshcon(playerName);
-
-        if (ashcon.isPresent()) {
-            return ashcon.get();
-        } else {
-            return getUUIDStartMojang(playerName);
-        }
-    }
-
-    private String getUUIDStartMojang(String playerName) throws SkinRequestException {
-        Optional<String> mojang = getUUIDMojang(playerName);
-
-        if (mojang.isPresent()) {
-            return mojang.get();
-        } else {
-            Optional<String> minetools = getUUIDMinetools(playerName);
-
-            return minetools.orElse(null);
-        }
+        return uuidRequests.execute(playerName.toLowerCase(), () -> providerChain.lookup(
+                providerChain.provider(MetricsCounter.Service.ASHCON, () -> getUUIDAshcon(playerName)),
+                providerChain.provider(MetricsCounter.Service.MOJANG, () -> getUUIDMojangBulk(playerName)),
+                providerChain.provider(MetricsCounter.Service.MINE_TOOLS, () -> getUUIDMinetools(playerName))
+        ).orElse(null));
     }
 
     /**
@@ -132,8 +144,7 @@ public class MojangAPI implements IMojangAPI {
      */
     protected Optional<String> getUUIDAshcon(String playerName) throws SkinRequestException {
         try {
-            final String output = readURL(ASHCON.replace("%uuidOrName%", playerName), MetricsCounter.Service.ASHCON).getRight();
-            final AshconResponse obj = new Gson().fromJson(output, AshconResponse.class);
+            final AshconResponse obj = ResponseParser.parse(readURL(ASHCON.replace("%uuidOrName%", playerName), MetricsCounter.Service.ASHCON), AshconResponse.class);
 
             if (obj.getCode() != 0) {
                 if (obj.getCode() == 404) {
@@ -152,13 +163,13 @@ public class MojangAPI implements IMojangAPI {
 
     public Optional<String> getUUIDMojang(String playerName) throws SkinRequestException {
         try {
-            final String output = readURL(UUID_MOJANG.replace("%playerName%", playerName), MetricsCounter.Service.MOJANG).getRight();
+            final HttpClient.HttpResponse response = readURL(UUID_MOJANG.replace("%playerName%", playerName), MetricsCounter.Service.MOJANG);
 
             //todo get http code instead of checking for isEmpty
-            if (output.isEmpty())
+            if (response.getBody().length == 0)
                 throw new NotPremiumExceptionShared();
 
-            final MojangUUIDResponse obj = new Gson().fromJson(output, MojangUUIDResponse.class);
+            final MojangUUIDResponse obj = ResponseParser.parse(response, MojangUUIDResponse.class);
             if (obj.getError() != null) {
                 return Optional.empty();
             }
@@ -170,10 +181,20 @@ public class MojangAPI implements IMojangAPI {
         return Optional.empty();
     }
 
+    /**
+     * Same as {@link #getUUIDMojang(String)}, but lookups arriving at the same time share a single request.
+     *
+     * @param playerName Mojang username of the player
+     * @return Dash-less UUID (String)
+     * @throws SkinRequestException If player is NOT_PREMIUM
+     */
+    protected Optional<String> getUUIDMojangBulk(String playerName) throws SkinRequestException {
+        return bulkUUIDResolver.resolve(playerName);
+    }
+
     protected Optional<String> getUUIDMinetools(String playerName) throws SkinRequestException {
         try {
-            final String output = readURL(UUID_MINETOOLS.replace("%playerName%", playerName), MetricsCounter.Service.MINE_TOOLS, 10000).getRight();
-            final MinetoolsUUIDResponse obj = new Gson().fromJson(output, MinetoolsUUIDResponse.class);
+            final MinetoolsUUIDResponse obj = ResponseParser.parse(readURL(UUID_MINETOOLS.replace("%playerName%", playerName), MetricsCounter.Service.MINE_TOOLS, 10000), MinetoolsUUIDResponse.class);
 
             if (obj.getId() != null)
                 return Optional.of(obj.getId());
@@ -184,29 +205,20 @@ public class MojangAPI implements IMojangAPI {
     }
 
     public Optional<IProperty> getProfile(String uuid) {
-        Optional<IProperty> ashcon = getProfileAshcon(uuid);
-
-        if (ashcon.isPresent()) {
-            return ashcon;
-        } else {
-            return getProfileStartMojang(uuid);
-        }
-    }
-
-    private Optional<IProperty> getProfileStartMojang(String uuid) {
-        Optional<IProperty> mojang = getProfileMojang(uuid);
-
-        if (mojang.isPresent()) {
-            return mojang;
-        } else {
-            return getProfileMinetools(uuid);
+        try {
+            return providerChain.lookup(
+                    providerChain.provider(MetricsCounter.Service.ASHCON, () -> getProfileAshcon(uuid)),
+                    providerChain.provider(MetricsCounter.Service.MOJANG, () -> getProfileMojang(uuid)),
+                    providerChain.provider(MetricsCounter.Service.MINE_TOOLS, () -> getProfileMinetools(uuid))
+            );
+        } catch (SkinRequestException e) { // Profile lookups do not throw
+            return Optional.empty();
         }
     }
 
     protected Optional<IProperty> getProfileAshcon(String uuid) {
         try {
-            final String output = readURL(ASHCON.replace("%uuidOrName%", uuid), MetricsCounter.Service.ASHCON).getRight();
-            final AshconResponse obj = new Gson().fromJson(output, AshconResponse.class);
+            final AshconResponse obj = ResponseParser.parse(readURL(ASHCON.replace("%uuidOrName%", uuid), MetricsCounter.Service.ASHCON), AshconResponse.class);
 
             if (obj.getTextures() != null) {
                 final AshconResponse.Textures textures = obj.getTextures();
@@ -226,8 +238,7 @@ public class MojangAPI implements IMojangAPI {
 
     public Optional<IProperty> getProfileMojang(String uuid) {
         try {
-            final String output = readURL(PROFILE_MOJANG.replace("%uuid%", uuid), MetricsCounter.Service.MOJANG).getRight();
-            final MojangProfileResponse obj = new Gson().fromJson(output, MojangProfileResponse.class);
+            final MojangProfileResponse obj = ResponseParser.parse(readURL(PROFILE_MOJANG.replace("%uuid%", uuid), MetricsCounter.Service.MOJANG), MojangProfileResponse.class);
             if (obj.getProperties() != null) {
                 final PropertyResponse property = obj.getProperties()[0];
 
@@ -245,8 +256,7 @@ public class MojangAPI implements IMojangAPI {
 
     protected Optional<IProperty> getProfileMinetools(String uuid) {
         try {
-            final String output = readURL(PROFILE_MINETOOLS.replace("%uuid%", uuid), MetricsCounter.Service.MINE_TOOLS, 10000).getRight();
-            final MinetoolsProfileResponse obj = new Gson().fromJson(output, MinetoolsProfileResponse.class);
+            final MinetoolsProfileResponse obj = ResponseParser.parse(readURL(PROFILE_MINETOOLS.replace("%uuid%", uuid), MetricsCounter.Service.MINE_TOOLS, 10000), MinetoolsProfileResponse.class);
             if (obj.getRaw() != null) {
                 final MinetoolsProfileResponse.Raw raw = obj.getRaw();
                 // Break on ERR
@@ -267,23 +277,48 @@ public class MojangAPI implements IMojangAPI {
         return Optional.empty();
     }
 
-    private Pair<Integer, String> readURL(String url, MetricsCounter.Service service) throws IOException {
+    private HttpClient.HttpResponse readURL(String url, MetricsCounter.Service service) throws IOException {
         return readURL(url, service, 5000);
     }
 
-    private Pair<Integer, String> readURL(String url, MetricsCounter.Service service, int timeout) throws IOException {
-        HttpsURLConnection con = (HttpsURLConnection) new URL(url).openConnection();
-        metricsCounter.increment(service);
+    private HttpClient.HttpResponse readURL(String url, MetricsCounter.Service service, int timeout) throws IOException {
+        return request(url, service, () -> httpClient.get(url, timeout));
+    }
+
+    private HttpClient.HttpResponse postURL(String url, String body, MetricsCounter.Service service, int timeout) throws IOException {
+        return request(url, service, () -> httpClient.post(url, body.getBytes(StandardCharsets.UTF_8), "application/json", timeout));
+    }
 
-        con.setRequestMethod("GET");
-        con.setRequestProperty("User-Agent", "SkinsRestorer");
-        con.setConnectTimeout(timeout);
-        con.setReadTimeout(timeout);
-        con.setDoOutput(true);
+    private HttpClient.HttpResponse request(String url, MetricsCounter.Service service, HttpCall call) throws IOException {
+        if (!rateLimiter.tryAcquire(service))
+            throw new IOException("Rate limit for " + service + " reached, not requesting " + url);
+
+        metricsCounter.increment(service);
+        long start = System.currentTimeMillis();
+        HttpClient.HttpResponse response;
+        try {
+            response = call.execute();
+        } catch (IOException e) {
+            // Cancelled hedged requests say nothing about the service
+            if (!Thread.currentThread().isInterrupted())
+                providerChain.recordRequest(service, false, System.currentTimeMillis() - start);
 
-        try (InputStream is = con.getInputStream()) {
-            return Pair.of(con.getResponseCode(), new BufferedReader(new InputStreamReader(is)).lines().collect(Collectors.joining()));
+            throw e;
         }
+
+        int statusCode = response.getStatusCode();
+        providerChain.recordRequest(service, statusCode < 500 && statusCode != 429, System.currentTimeMillis() - start);
+
+        // Error responses count as failed requests, the body was still read so the connection can be reused
+        if (statusCode >= 400)
+            throw new IOException("Server returned HTTP response code: " + response.getStatusCode() + " for URL: " + url);
+
+        return response;
+    }
+
+    @FunctionalInterface
+    private interface HttpCall {
+        HttpClient.HttpResponse execute() throws IOException;
     }
 
     @RequiredArgsConstructor
@@ -0,0 +1,393 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.utils.connections;
+
+import lombok.RequiredArgsConstructor;
+import net.skinsrestorer.api.exception.SkinRequestException;
+import net.skinsrestorer.shared.exception.SkinRequestExceptionShared;
+import net.skinsrestorer.shared.storage.Config;
+import net.skinsrestorer.shared.storage.Message;
+import net.skinsrestorer.shared.utils.MetricsCounter;
+import net.skinsrestorer.shared.utils.SRExecutors;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Asks a list of web services for the same thing, in order, until one of them has an answer.
+ * <p>
+ * With {@link Config#HEDGED_LOOKUPS_ENABLED} the next service is also asked when the current one
+ * takes longer than usual, instead of waiting for its timeout. The first answer wins and the other requests get aborted.
+ * A service is only hedged to while it can take a request without waiting for its rate limit,
+ * and hedged requests run on the {@link SRExecutors.Pool#LOOKUP} pool, when it is full the services are asked one after another.
+ * <p>
+ * The result and response time of every request is tracked per service. Services failing most of their recent requests
+ * are skipped for a while (circuit breaker) and get a single probe request once that time is over.
+ * Healthy services are asked fastest first.
+ */
+public class ProviderChain {
+    private static final long DEFAULT_HEDGE_DELAY = 1000;
+    private static final long MIN_HEDGE_DELAY = 50;
+    private static final long OPEN_CIRCUIT_TIME = TimeUnit.MINUTES.toMillis(1);
+    private final MetricsCounter metricsCounter;
+    private final RateLimiter rateLimiter;
+    private final SRExecutors executors;
+    private final Map<MetricsCounter.Service, ServiceHealth> health = new ConcurrentHashMap<>();
+
+    public ProviderChain(MetricsCounter metricsCounter, RateLimiter rateLimiter, SRExecutors executors) {
+        this.metricsCounter = metricsCounter;
+        this.rateLimiter = rateLimiter;
+        this.executors = executors;
+    }
+
+    public <T> Provider<T> provider(MetricsCounter.Service service, Lookup<T> lookup) {
+        return new Provider<>(service, lookup);
+    }
+
+    /**
+     * A service counts as having an answer if it returned a value or threw a {@link SkinRequestException}.
+     *
+     * @param providers services to ask, in order of preference
+     * @return the first value found, or empty if no service had one
+     * @throws SkinRequestException if the service that answered first threw it,
+     *                              or with {@link Message#WAIT_A_MINUTE} if all services are over their rate limit
+     */
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    public final <T> Optional<T> lookup(Provider<T>... providers) throws SkinRequestException {
+        // Fail right away instead of waiting for requests that would not be sent anyway
+        providers = Arrays.stream(providers).filter(provider -> rateLimiter.canAcquire(provider.service)).toArray(Provider[]::new);
+        if (providers.length == 0)
+            throw new SkinRequestExceptionShared(Message.WAIT_A_MINUTE);
+
+        providers = order(providers);
+
+        if (!Config.HEDGED_LOOKUPS_ENABLED || providers.length == 1)
+            return lookupSequential(providers);
+
+        CompletionService<Outcome<T>> completionService = new ExecutorCompletionService<>(executors.get(SRExecutors.Pool.LOOKUP));
+        List<HedgedCall<T>> calls = new ArrayList<>();
+        int started = 0;
+        int running = 0;
+
+        try {
+            while (true) {
+                if (running == 0) {
+                    if (started == providers.length)
+                        return Optional.empty();
+
+                    if (!submit(completionService, calls, providers[started]))
+                        return lookupSequential(Arrays.copyOfRange(providers, started, providers.length));
+
+                    started++;
+                    running++;
+                }
+
+                long delay = started < providers.length && rateLimiter.canAcquireNow(providers[started].service)
+                        ? getHedgeDelay(providers[started - 1].service) : Long.MAX_VALUE;
+                Future<Outcome<T>> done = completionService.poll(delay, TimeUnit.MILLISECONDS);
+
+                if (done == null) { // Took too long, also ask the next one if it can take a request right away
+                    if (rateLimiter.canAcquireNow(providers[started].service) && submit(completionService, calls, providers[started])) {
+                        started++;
+                        running++;
+                    }
+                    continue;
+                }
+
+                running--;
+                Outcome<T> outcome = getOutcome(done);
+                if (outcome.exception != null)
+                    throw outcome.exception;
+
+                if (outcome.value.isPresent()) {
+                    metricsCounter.incrementWins(outcome.service);
+                    return outcome.value;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SkinRequestExceptionShared(e);
+        } finally {
+            calls.forEach(HedgedCall::cancel);
+        }
+    }
+
+    /**
+     * @return false if the lookup pool is full
+     */
+    private <T> boolean submit(CompletionService<Outcome<T>> completionService, List<HedgedCall<T>> calls, Provider<T> provider) {
+        HedgedCall<T> call = new HedgedCall<>(provider);
+        try {
+            call.future = completionService.submit(call);
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+
+        calls.add(call);
+        return true;
+    }
+
+    private <T> Optional<T> lookupSequential(Provider<T>[] providers) throws SkinRequestException {
+        for (Provider<T> provider : providers) {
+            Outcome<T> outcome = provider.call();
+            if (outcome.exception != null)
+                throw outcome.exception;
+
+            if (outcome.value.isPresent()) {
+                metricsCounter.incrementWins(outcome.service);
+                return outcome.value;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private static <T> Outcome<T> getOutcome(Future<Outcome<T>> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            // Provider.call() catches everything, this can not happen
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Records the result of a single request to a service.
+     *
+     * @param service service the request was sent to
+     * @param success false if the service did not respond or responded with a server error
+     * @param millis  time the request took
+     */
+    public void recordRequest(MetricsCounter.Service service, boolean success, long millis) {
+        getHealth(service).record(success, millis);
+    }
+
+    /**
+     * Sets the initial state of a service, for example from the service check on startup.
+     * A service that is not working is skipped until its first probe request.
+     */
+    public void seed(MetricsCounter.Service service, boolean working) {
+        if (!working)
+            getHealth(service).open();
+    }
+
+    /**
+     * @return state and median response time of all services that were used
+     */
+    public String getStatus() {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (MetricsCounter.Service service : MetricsCounter.Service.values()) {
+            ServiceHealth serviceHealth = health.get(service);
+            if (serviceHealth != null)
+                joiner.add(service.name() + " " + serviceHealth.getStatus());
+        }
+
+        return joiner.length() == 0 ? "unused" : joiner.toString();
+    }
+
+    /**
+     * Leaves out services with an open circuit, unless that would leave out all services,
+     * and puts the fastest services first once the response times of all services are known.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Provider<T>[] order(Provider<T>[] providers) {
+        List<Provider<T>> available = new ArrayList<>();
+        for (Provider<T> provider : providers) {
+            if (getHealth(provider.service).isAvailable())
+                available.add(provider);
+        }
+
+        if (available.isEmpty())
+            return providers;
+
+        Map<MetricsCounter.Service, Long> medians = new EnumMap<>(MetricsCounter.Service.class);
+        for (Provider<T> provider : available) {
+            long median = getHealth(provider.service).latencyPercentile(0.5);
+            if (median == -1)
+                return available.toArray(new Provider[0]);
+
+            medians.put(provider.service, median);
+        }
+
+        available.sort(Comparator.comparingLong(provider -> medians.get(provider.service)));
+        return available.toArray(new Provider[0]);
+    }
+
+    private long getHedgeDelay(MetricsCounter.Service service) {
+        if (Config.HEDGED_LOOKUPS_DELAY > 0)
+            return Config.HEDGED_LOOKUPS_DELAY;
+
+        long p95 = getHealth(service).latencyPercentile(0.95);
+
+        return p95 == -1 ? DEFAULT_HEDGE_DELAY : Math.max(MIN_HEDGE_DELAY, p95);
+    }
+
+    private ServiceHealth getHealth(MetricsCounter.Service service) {
+        return health.computeIfAbsent(service, k -> new ServiceHealth());
+    }
+
+    @FunctionalInterface
+    public interface Lookup<T> {
+        Optional<T> lookup() throws SkinRequestException;
+    }
+
+    /**
+     * A request on the lookup pool, cancelling it also aborts its running http request.
+     */
+    @RequiredArgsConstructor
+    private static class HedgedCall<T> implements Callable<Outcome<T>> {
+        private final Provider<T> provider;
+        private final HttpClient.Abortable abortable = new HttpClient.Abortable();
+        private Future<Outcome<T>> future;
+
+        @Override
+        public Outcome<T> call() {
+            abortable.bind();
+            try {
+                return provider.call();
+            } finally {
+                HttpClient.Abortable.unbind();
+            }
+        }
+
+        private void cancel() {
+            future.cancel(true);
+            abortable.abort();
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Outcome<T> {
+        private final MetricsCounter.Service service;
+        private final Optional<T> value;
+        private final SkinRequestException exception;
+    }
+
+    private enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Results and response times of the last requests to a service.
+     */
+    private static class ServiceHealth {
+        private static final int WINDOW_SIZE = 20;
+        private static final int MIN_SAMPLES = 10;
+        private final boolean[] successes = new boolean[WINDOW_SIZE];
+        private final long[] latencies = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+        private CircuitState state = CircuitState.CLOSED;
+        private long stateChangedAt;
+
+        private synchronized void record(boolean success, long millis) {
+            if (state == CircuitState.OPEN || state == CircuitState.HALF_OPEN) {
+                if (success) { // Probe went through, start over
+                    count = 0;
+                    next = 0;
+                    setState(CircuitState.CLOSED);
+                } else {
+                    setState(CircuitState.OPEN);
+                }
+            }
+
+            successes[next] = success;
+            latencies[next] = millis;
+            next = (next + 1) % WINDOW_SIZE;
+            count = Math.min(count + 1, WINDOW_SIZE);
+
+            if (state == CircuitState.CLOSED && count >= MIN_SAMPLES) {
+                int failures = 0;
+                for (int i = 0; i < count; i++) {
+                    if (!successes[i])
+                        failures++;
+                }
+
+                if (failures * 2 >= count)
+                    setState(CircuitState.OPEN);
+            }
+        }
+
+        private synchronized void open() {
+            setState(CircuitState.OPEN);
+        }
+
+        /**
+         * An open circuit lets a single probe request through once {@link #OPEN_CIRCUIT_TIME} is over.
+         */
+        private synchronized boolean isAvailable() {
+            if (state == CircuitState.CLOSED)
+                return true;
+
+            if (System.currentTimeMillis() - stateChangedAt < OPEN_CIRCUIT_TIME)
+                return false;
+
+            // Also lets a new probe through if the last one never finished
+            setState(CircuitState.HALF_OPEN);
+            return true;
+        }
+
+        private synchronized long latencyPercentile(double percentile) {
+            long[] sorted = new long[count];
+            int successCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (successes[i])
+                    sorted[successCount++] = latencies[i];
+            }
+
+            if (successCount == 0)
+                return -1;
+
+            sorted = Arrays.copyOf(sorted, successCount);
+            Arrays.sort(sorted);
+
+            return sorted[(int) Math.min(successCount - 1, Math.ceil(percentile * successCount) - 1)];
+        }
+
+        private synchronized String getStatus() {
+            long median = latencyPercentile(0.5);
+            return state.name().toLowerCase(Locale.ROOT) + (median == -1 ? "" : " " + median + "ms");
+        }
+
+        private void setState(CircuitState state) {
+            this.state = state;
+            this.stateChangedAt = System.currentTimeMillis();
+        }
+    }
+
+    @RequiredArgsConstructor
+    public class Provider<T> {
+        private final MetricsCounter.Service service;
+        private final Lookup<T> lookup;
+
+        private Outcome<T> call() {
+            try {
+                return new Outcome<>(service, lookup.lookup(), null);
+            } catch (SkinRequestException e) {
+                return new Outcome<>(service, Optional.empty(), e);
+            } catch (Exception e) {
+                return new Outcome<>(service, Optional.empty(), null);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.utils.connections;
+
+import net.skinsrestorer.shared.storage.Config;
+import net.skinsrestorer.shared.utils.MetricsCounter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the requests to every web service below the limit set in {@link Config}, using one token bucket per service.
+ * A request above the limit waits for its turn, unless that would take longer than {@link Config#RATE_LIMIT_MAX_WAIT_TIME}.
+ */
+public class RateLimiter {
+    private final Map<MetricsCounter.Service, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private static int getLimit(MetricsCounter.Service service) {
+        switch (service) {
+            case MOJANG:
+                return Config.RATE_LIMIT_MOJANG;
+            case ASHCON:
+                return Config.RATE_LIMIT_ASHCON;
+            case MINE_TOOLS:
+                return Config.RATE_LIMIT_MINETOOLS;
+            case MINE_SKIN:
+                return Config.RATE_LIMIT_MINESKIN;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Waits until a request to the service may be sent.
+     *
+     * @param service service the request is sent to
+     * @return false if the request can not be sent within the max wait time, the caller should give up
+     */
+    public boolean tryAcquire(MetricsCounter.Service service) {
+        long waitTime = reserve(service);
+        if (waitTime < 0)
+            return false;
+
+        if (waitTime > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(waitTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Same as {@link #tryAcquire(MetricsCounter.Service)}, but leaves the waiting to the caller, e.g. to schedule the request.
+     *
+     * @param service service the request is sent to
+     * @return milliseconds to wait before the request may be sent, or -1 if the caller should give up
+     */
+    public long reserve(MetricsCounter.Service service) {
+        Bucket bucket = getBucket(service);
+        if (bucket == null)
+            return 0;
+
+        return bucket.reserve(Config.RATE_LIMIT_MAX_WAIT_TIME);
+    }
+
+    /**
+     * @return true if a request to the service could currently be sent within the max wait time
+     */
+    public boolean canAcquire(MetricsCounter.Service service) {
+        Bucket bucket = getBucket(service);
+
+        return bucket == null || bucket.getWaitTime() <= Config.RATE_LIMIT_MAX_WAIT_TIME;
+    }
+
+    /**
+     * @return true if a request to the service could be sent right away, without taking a token ahead of time
+     */
+    public boolean canAcquireNow(MetricsCounter.Service service) {
+        Bucket bucket = getBucket(service);
+
+        return bucket == null || bucket.getWaitTime() == 0;
+    }
+
+    private Bucket getBucket(MetricsCounter.Service service) {
+        int limit = getLimit(service);
+        if (limit <= 0)
+            return null;
+
+        // Recreated when the limit was changed by a reload
+        return buckets.compute(service, (k, bucket) -> bucket == null || bucket.perMinute != limit ? new Bucket(limit) : bucket);
+    }
+
+    private static class Bucket {
+        private final int perMinute;
+        private final double capacity;
+        private final double tokensPerMilli;
+        private double tokens;
+        private long lastRefill = System.currentTimeMillis();
+
+        private Bucket(int perMinute) {
+            this.perMinute = perMinute;
+            // Allows bursts of up to 10 seconds worth of requests
+            this.capacity = Math.max(1, perMinute / 6D);
+            this.tokensPerMilli = perMinute / (double) TimeUnit.MINUTES.toMillis(1);
+            this.tokens = capacity;
+        }
+
+        /**
+         * Takes a token, going below zero reserves a future one.
+         *
+         * @return milliseconds to wait before the request may be sent, or -1 if that is longer than maxWaitTime
+         */
+        private synchronized long reserve(long maxWaitTime) {
+            refill();
+            tokens--;
+
+            long waitTime = getWaitTimeForTokens();
+            if (waitTime > maxWaitTime) {
+                tokens++;
+                return -1;
+            }
+
+            return waitTime;
+        }
+
+        private synchronized long getWaitTime() {
+            refill();
+            tokens--;
+            long waitTime = getWaitTimeForTokens();
+            tokens++;
+
+            return waitTime;
+        }
+
+        private long getWaitTimeForTokens() {
+            return tokens < 0 ? (long) Math.ceil(-tokens / tokensPerMilli) : 0;
+        }
+
+        private void refill() {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+            lastRefill = now;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * SkinsRestorer
+ *
+ * Copyright (C) 2022 SkinsRestorer
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ */
+package net.skinsrestorer.shared.utils.connections;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.MalformedJsonException;
+import net.skinsrestorer.shared.utils.connections.responses.AshconResponse;
+import net.skinsrestorer.shared.utils.connections.responses.mineskin.MineSkinErrorDelayResponse;
+import net.skinsrestorer.shared.utils.connections.responses.mineskin.MineSkinErrorResponse;
+import net.skinsrestorer.shared.utils.connections.responses.mineskin.MineSkinUrlResponse;
+import net.skinsrestorer.shared.utils.connections.responses.profile.MinetoolsProfileResponse;
+import net.skinsrestorer.shared.utils.connections.responses.profile.MojangProfileResponse;
+import net.skinsrestorer.shared.utils.connections.responses.uuid.MinetoolsUUIDResponse;
+import net.skinsrestorer.shared.utils.connections.responses.uuid.MojangUUIDResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses the JSON responses of the web services.
+ * <p>
+ * Gson and its type adapters are thread-safe, so one instance is shared by all requests,
+ * with the adapters of the known response classes built when the class is loaded instead of on the first request.
+ * Bodies are parsed straight from their bytes, without creating a string of the whole body first.
+ * Behaves like {@link Gson#fromJson(String, Class)}: an empty body results in null and invalid JSON throws {@link JsonSyntaxException}.
+ */
+public class ResponseParser {
+    private static final Gson GSON = new Gson();
+    private static final Map<Class<?>, TypeAdapter<?>> ADAPTERS = new ConcurrentHashMap<>();
+
+    static {
+        register(AshconResponse.class);
+        register(MojangUUIDResponse.class);
+        register(MojangUUIDResponse[].class);
+        register(MinetoolsUUIDResponse.class);
+        register(MojangProfileResponse.class);
+        register(MinetoolsProfileResponse.class);
+        register(MineSkinUrlResponse.class);
+        register(MineSkinErrorResponse.class);
+        register(MineSkinErrorDelayResponse.class);
+    }
+
+    private ResponseParser() {
+    }
+
+    private static void register(Class<?> type) {
+        ADAPTERS.put(type, GSON.getAdapter(type));
+    }
+
+    public static <T> T parse(HttpClient.HttpResponse response, Class<T> type) {
+        return parse(response.getBody(), type);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T parse(byte[] body, Class<T> type) {
+        TypeAdapter<T> adapter = (TypeAdapter<T>) ADAPTERS.computeIfAbsent(type, GSON::getAdapter);
+        boolean empty = true;
+
+        try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            reader.setLenient(true);
+            reader.peek();
+            empty = false;
+
+            return adapter.read(reader);
+        } catch (EOFException e) {
+            if (empty)
+                return null;
+
+            throw new JsonSyntaxException(e);
+        } catch (MalformedJsonException | IllegalStateException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * @param src object to serialize, for example a request body
+     * @return JSON of the object
+     */
+    public static String toJson(Object src) {
+        return GSON.toJson(src);
+    }
+}
@@ -23,10 +23,9 @@ import lombok.Getter;
 import lombok.Setter;
 import net.skinsrestorer.api.exception.SkinRequestException;
 import net.skinsrestorer.api.property.IProperty;
+import net.skinsrestorer.shared.utils.MetricsCounter;
 
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class ServiceChecker {
@@ -49,6 +48,7 @@ public class ServiceChecker {
             if (uuid.isPresent() && !uuid.get().equalsIgnoreCase("null")) {
                 response.addResult("Ashcon UUID §a✔ xknat UUID: §b" + uuid);
                 response.incrementWorkingUUID();
+                response.markWorking(MetricsCounter.Service.ASHCON);
             } else response.addResult("Ashcon UUID §c✘ Error getting UUID: null");
         } catch (SkinRequestException e) {
             response.addResult("Ashcon UUID §c✘ Error getting UUID: " + e.getMessage());
@@ -60,6 +60,7 @@ public class ServiceChecker {
             if (uuid.isPresent() && !uuid.get().equalsIgnoreCase("null")) {
                 response.addResult("Mojang API UUID §a✔ xknat UUID: §b" + uuid);
                 response.incrementWorkingUUID();
+                response.markWorking(MetricsCounter.Service.MOJANG);
             } else response.addResult("Mojang API UUID §c✘ Error getting UUID: null");
         } catch (SkinRequestException e) {
             response.addResult("Mojang API UUID §c✘ Error getting UUID: " + e.getMessage());
@@ -71,6 +72,7 @@ public class ServiceChecker {
             if (uuid.isPresent() && !uuid.get().equalsIgnoreCase("null")) {
                 response.addResult("Minetools API UUID §a✔ xknat UUID: §b" + uuid);
                 response.incrementWorkingUUID();
+                response.markWorking(MetricsCounter.Service.MINE_TOOLS);
             } else response.addResult("Minetools API UUID §c✘ Error getting UUID: null");
         } catch (SkinRequestException e) {
             response.addResult("Minetools API UUID §c✘ Error getting UUID: " + e.getMessage());
@@ -81,18 +83,21 @@ public class ServiceChecker {
         if (ashcon.isPresent()) {
             response.addResult("Ashcon Profile §a✔ xknat Profile: §b" + ashcon);
             response.incrementWorkingProfile();
+            response.markWorking(MetricsCounter.Service.ASHCON);
         } else response.addResult("Ashcon Profile §c✘ Error getting Profile: null");
 
         Optional<IProperty> mojang = mojangAPI.getProfileMojang(XKNAT_UUID);
         if (mojang.isPresent()) {
             response.addResult("Mojang-API Profile §a✔ xknat Profile: §b" + mojang);
             response.incrementWorkingProfile();
+            response.markWorking(MetricsCounter.Service.MOJANG);
         } else response.addResult("Mojang-API Profile §c✘ Error getting Profile: null");
 
         Optional<IProperty> minetools = mojangAPI.getProfileMinetools(XKNAT_UUID);
         if (minetools.isPresent()) {
             response.addResult("Minetools Profile §a✔ xknat Profile: §b" + minetools);
             response.incrementWorkingProfile();
+            response.markWorking(MetricsCounter.Service.MINE_TOOLS);
         } else response.addResult("Minetools Profile §c✘ Error getting Profile: null");
     }
 
@@ -101,6 +106,7 @@ public class ServiceChecker {
         private final List<String> results = new LinkedList<>();
         private final AtomicInteger workingUUID = new AtomicInteger();
         private final AtomicInteger workingProfile = new AtomicInteger();
+        private final Set<MetricsCounter.Service> workingServices = EnumSet.noneOf(MetricsCounter.Service.class);
 
         public void addResult(String result) {
             results.add(result);
@@ -113,5 +119,18 @@ public class ServiceChecker {
         public void incrementWorkingProfile() {
             workingProfile.getAndIncrement();
         }
+
+        public void markWorking(MetricsCounter.Service service) {
+            workingServices.add(service);
+        }
+
+        /**
+         * Sets the initial circuit state of the checked services, so broken services are skipped right away.
+         */
+        public void seed(ProviderChain providerChain) {
+            providerChain.seed(MetricsCounter.Service.ASHCON, workingServices.contains(MetricsCounter.Service.ASHCON));
+            providerChain.seed(MetricsCounter.Service.MOJANG, workingServices.contains(MetricsCounter.Service.MOJANG));
+            providerChain.seed(MetricsCounter.Service.MINE_TOOLS, workingServices.contains(MetricsCounter.Service.MINE_TOOLS));
+        }
     }
 }
@@ -27,6 +27,7 @@ import org.spongepowered.api.config.ConfigDir;
 import org.spongepowered.api.event.Listener;
 import org.spongepowered.api.event.game.state.GameInitializationEvent;
 import org.spongepowered.api.event.game.state.GameStartedServerEvent;
+import org.spongepowered.api.event.game.state.GameStoppingServerEvent;
 import org.spongepowered.api.plugin.Plugin;
 import org.spongepowered.api.plugin.PluginContainer;
 
@@ -58,4 +59,11 @@ public class SkinsRestorerBootstrap {
             this.plugin.onServerStarted();
         }
     }
+
+    @Listener
+    public void onServerStopping(GameStoppingServerEvent event) {
+        if (this.plugin != null) {
+            this.plugin.pluginShutdown();
+        }
+    }
 }
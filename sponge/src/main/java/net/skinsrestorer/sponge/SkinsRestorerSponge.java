@@ -32,6 +32,7 @@ import net.skinsrestorer.shared.interfaces.ISRPlayer;
 import net.skinsrestorer.shared.plugin.SkinsRestorerServerShared;
 import net.skinsrestorer.shared.storage.Config;
 import net.skinsrestorer.shared.storage.Message;
+import net.skinsrestorer.shared.utils.SRExecutors;
 import net.skinsrestorer.shared.utils.SharedMethods;
 import net.skinsrestorer.shared.utils.log.Slf4jLoggerImpl;
 import net.skinsrestorer.sponge.commands.SkinCommand;
@@ -109,7 +110,7 @@ public class SkinsRestorerSponge extends SkinsRestorerServerShared {
         initCommands();
 
         // Run connection check
-        runAsync(() -> SharedMethods.runServiceCheck(mojangAPI, logger));
+        executors.execute(SRExecutors.Pool.BACKGROUND, () -> SharedMethods.runServiceCheck(mojangAPI, logger));
     }
 
     public void onServerStarted() {
@@ -138,11 +139,6 @@ public class SkinsRestorerSponge extends SkinsRestorerServerShared {
         return getClass().getClassLoader().getResourceAsStream(resource);
     }
 
-    @Override
-    public void runAsync(Runnable runnable) {
-        game.getScheduler().createAsyncExecutor(pluginInstance).execute(runnable);
-    }
-
     @Override
     public void runSync(Runnable runnable) {
         Sponge.getScheduler().createSyncExecutor(pluginInstance).execute(runnable);
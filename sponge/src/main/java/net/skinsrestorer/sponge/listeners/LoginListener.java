@@ -21,7 +21,6 @@ package net.skinsrestorer.sponge.listeners;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import net.skinsrestorer.api.exception.SkinRequestException;
 import net.skinsrestorer.shared.listeners.SRLoginProfileEvent;
 import net.skinsrestorer.shared.listeners.SharedLoginProfileListener;
 import net.skinsrestorer.sponge.SkinsRestorerSponge;
@@ -32,8 +31,6 @@ import org.spongepowered.api.event.network.ClientConnectionEvent;
 import org.spongepowered.api.event.network.ClientConnectionEvent.Auth;
 import org.spongepowered.api.profile.GameProfile;
 
-import java.util.Optional;
-
 @RequiredArgsConstructor
 @Getter
 public class LoginListener extends SharedLoginProfileListener implements EventListener<ClientConnectionEvent.Auth> {
@@ -46,14 +43,8 @@ public class LoginListener extends SharedLoginProfileListener implements EventLi
             return;
 
         final GameProfile profile = event.getProfile();
-        profile.getName().flatMap(name -> {
-            try {
-                return handleAsync(wrapped);
-            } catch (SkinRequestException e) {
-                plugin.getLogger().debug(e);
-                return Optional.empty();
-            }
-        }).ifPresent(property -> plugin.getSkinApplierSponge().updateProfileSkin(profile, property));
+        if (profile.getName().isPresent())
+            handleAsync(wrapped, property -> plugin.getSkinApplierSponge().updateProfileSkin(profile, property)).join();
     }
 
     private SRLoginProfileEvent wrap(Auth event) {
@@ -28,10 +28,8 @@ import lombok.RequiredArgsConstructor;
 import net.skinsrestorer.api.property.IProperty;
 import net.skinsrestorer.api.velocity.events.SkinApplyVelocityEvent;
 import net.skinsrestorer.shared.storage.Config;
+import net.skinsrestorer.shared.utils.PluginMessageCodec;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -79,22 +77,10 @@ public class SkinApplierVelocity {
         player.getCurrentServer().ifPresent(serverConnection -> {
             plugin.getLogger().debug("Sending skin update request for " + player.getUsername());
 
-            ByteArrayOutputStream b = new ByteArrayOutputStream();
-            DataOutputStream out = new DataOutputStream(b);
+            byte[] data = textures == null ? PluginMessageCodec.encodeSkinUpdate(null, null, null)
+                    : PluginMessageCodec.encodeSkinUpdate(textures.getName(), textures.getValue(), textures.getSignature());
 
-            try {
-                out.writeUTF("SkinUpdate");
-
-                if (textures != null) {
-                    out.writeUTF(textures.getName());
-                    out.writeUTF(textures.getValue());
-                    out.writeUTF(textures.getSignature());
-                }
-
-                serverConnection.sendPluginMessage(MinecraftChannelIdentifier.create("sr", "skinchange"), b.toByteArray());
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            serverConnection.sendPluginMessage(MinecraftChannelIdentifier.create("sr", "skinchange"), data);
         });
     }
 }
@@ -22,6 +22,7 @@ package net.skinsrestorer.velocity;
 import com.google.inject.Inject;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.PluginContainer;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
@@ -45,9 +46,17 @@ public class SkinsRestorerBootstrap {
     private Logger logger;
     @Inject
     private PluginContainer container;
+    private SkinsRestorerVelocity plugin;
 
     @Subscribe
     public void onProxyInitialize(ProxyInitializeEvent event) {
-        new SkinsRestorerVelocity(this, proxy, metricsFactory, dataFolderPath, logger, container).pluginStartup();
+        plugin = new SkinsRestorerVelocity(this, proxy, metricsFactory, dataFolderPath, logger, container);
+        plugin.pluginStartup();
+    }
+
+    @Subscribe
+    public void onProxyShutdown(ProxyShutdownEvent event) {
+        if (plugin != null)
+            plugin.pluginShutdown();
     }
 }
@@ -36,6 +36,7 @@ import net.skinsrestorer.shared.interfaces.ISRProxyPlayer;
 import net.skinsrestorer.shared.plugin.SkinsRestorerProxyShared;
 import net.skinsrestorer.shared.storage.Config;
 import net.skinsrestorer.shared.storage.Message;
+import net.skinsrestorer.shared.utils.SRExecutors;
 import net.skinsrestorer.shared.utils.SharedMethods;
 import net.skinsrestorer.shared.utils.log.Slf4jLoggerImpl;
 import net.skinsrestorer.velocity.command.GUICommand;
@@ -128,7 +129,7 @@ public class SkinsRestorerVelocity extends SkinsRestorerProxyShared {
         proxy.getEventManager().register(pluginInstance, new PluginMessageListener(this));
 
         // Run connection check
-        runAsync(() -> SharedMethods.runServiceCheck(mojangAPI, logger));
+        executors.execute(SRExecutors.Pool.BACKGROUND, () -> SharedMethods.runServiceCheck(mojangAPI, logger));
     }
 
     private void initCommands() {
@@ -149,11 +150,6 @@ public class SkinsRestorerVelocity extends SkinsRestorerProxyShared {
         return getClass().getClassLoader().getResourceAsStream(resource);
     }
 
-    @Override
-    public void runAsync(Runnable runnable) {
-        proxy.getScheduler().buildTask(pluginInstance, runnable).schedule();
-    }
-
     @Override
     public void runRepeatAsync(Runnable runnable, int delay, int interval, TimeUnit timeUnit) {
         proxy.getScheduler().buildTask(pluginInstance, runnable).delay(delay, timeUnit).repeat(interval, timeUnit).schedule();
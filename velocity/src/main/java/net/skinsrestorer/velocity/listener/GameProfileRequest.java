@@ -24,11 +24,15 @@ import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.player.GameProfileRequestEvent;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import net.skinsrestorer.api.exception.SkinRequestException;
 import net.skinsrestorer.shared.listeners.SRLoginProfileEvent;
 import net.skinsrestorer.shared.listeners.SharedLoginProfileListener;
+import net.skinsrestorer.shared.utils.SRExecutors;
 import net.skinsrestorer.velocity.SkinsRestorerVelocity;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
 @RequiredArgsConstructor
 @Getter
 public class GameProfileRequest extends SharedLoginProfileListener {
@@ -40,14 +44,14 @@ public class GameProfileRequest extends SharedLoginProfileListener {
         if (handleSync(wrapped))
             return null;
 
-        return EventTask.async(() -> {
-            try {
-                handleAsync(wrapped).ifPresent(property ->
-                        event.setGameProfile(plugin.getSkinApplierVelocity().updateProfileSkin(event.getGameProfile(), property)));
-            } catch (SkinRequestException e) {
-                plugin.getLogger().debug(e);
-            }
-        });
+        try {
+            return EventTask.resumeWhenComplete(CompletableFuture.supplyAsync(() -> handleAsync(wrapped, property ->
+                            event.setGameProfile(plugin.getSkinApplierVelocity().updateProfileSkin(event.getGameProfile(), property))),
+                    plugin.getExecutors().get(SRExecutors.Pool.LOGIN)).thenCompose(Function.identity()));
+        } catch (RejectedExecutionException e) {
+            // Too many players are joining at once, let this one in without applying a skin
+            return null;
+        }
     }
 
     private SRLoginProfileEvent wrap(GameProfileRequestEvent event) {